@@ -0,0 +1,7 @@
+package android.content;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public class Context {
+}
@@ -0,0 +1,17 @@
+package android.os;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use. Posted runnables run at once,
+ * as if the tests were running on the main thread with an idle queue.
+ */
+public class Handler {
+
+    public Handler(Looper looper) {
+    }
+
+    public final boolean post(Runnable r) {
+        r.run();
+        return true;
+    }
+
+}
@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public final class Looper {
+
+    private static final Looper sMainLooper = new Looper();
+
+    public static Looper getMainLooper() {
+        return sMainLooper;
+    }
+
+}
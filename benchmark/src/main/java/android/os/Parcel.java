@@ -0,0 +1,29 @@
+package android.os;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public final class Parcel {
+
+    public void writeInt(int value) {
+    }
+
+    public int readInt() {
+        return 0;
+    }
+
+    public void writeLong(long value) {
+    }
+
+    public long readLong() {
+        return 0;
+    }
+
+    public void writeIntArray(int[] value) {
+    }
+
+    public int[] createIntArray() {
+        return null;
+    }
+
+}
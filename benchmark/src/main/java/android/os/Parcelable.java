@@ -0,0 +1,20 @@
+package android.os;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public interface Parcelable {
+
+    int describeContents();
+
+    void writeToParcel(Parcel dest, int flags);
+
+    interface Creator<T> {
+
+        T createFromParcel(Parcel source);
+
+        T[] newArray(int size);
+
+    }
+
+}
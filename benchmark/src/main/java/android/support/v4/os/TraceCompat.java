@@ -0,0 +1,14 @@
+package android.support.v4.os;
+
+/**
+ * Stub of the support library class, only what the benchmarked sources use
+ */
+public final class TraceCompat {
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+
+}
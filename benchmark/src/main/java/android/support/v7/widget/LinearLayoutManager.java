@@ -0,0 +1,32 @@
+package android.support.v7.widget;
+
+import android.view.View;
+
+/**
+ * Stub of the support library class, only what the benchmarked sources use
+ */
+public class LinearLayoutManager extends RecyclerView.LayoutManager {
+
+    public static final int HORIZONTAL = 0;
+    public static final int VERTICAL = 1;
+
+    public int getOrientation() {
+        return VERTICAL;
+    }
+
+    public int findFirstVisibleItemPosition() {
+        return RecyclerView.NO_POSITION;
+    }
+
+    public int findLastVisibleItemPosition() {
+        return RecyclerView.NO_POSITION;
+    }
+
+    public View findViewByPosition(int position) {
+        return null;
+    }
+
+    public void scrollToPositionWithOffset(int position, int offset) {
+    }
+
+}
@@ -0,0 +1,200 @@
+package android.support.v7.widget;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stub of the support library class, only what the benchmarked sources use. Notifications are
+ * dispatched to registered observers like the real adapter does, the adapter keeps its section
+ * index up to date through them.
+ */
+public class RecyclerView extends ViewGroup {
+
+    public static final int NO_POSITION = -1;
+    public static final long NO_ID = -1;
+    public static final int SCROLL_STATE_IDLE = 0;
+
+    public RecyclerView(Context context) {
+        super(context);
+    }
+
+    public LayoutManager getLayoutManager() {
+        return null;
+    }
+
+    public void addOnScrollListener(OnScrollListener listener) {
+    }
+
+    public void removeOnScrollListener(OnScrollListener listener) {
+    }
+
+    public static abstract class LayoutManager {
+    }
+
+    public static abstract class OnScrollListener {
+
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        }
+
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        }
+
+    }
+
+    public static abstract class Adapter<VH extends ViewHolder> {
+
+        private final List<AdapterDataObserver> mObservers = new ArrayList<AdapterDataObserver>();
+        private boolean mHasStableIds;
+
+        public abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+        public abstract void onBindViewHolder(VH holder, int position);
+
+        public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+            onBindViewHolder(holder, position);
+        }
+
+        public void onViewRecycled(VH holder) {
+        }
+
+        public boolean onFailedToRecycleView(VH holder) {
+            return false;
+        }
+
+        public void onViewAttachedToWindow(VH holder) {
+        }
+
+        public void onViewDetachedFromWindow(VH holder) {
+        }
+
+        public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        }
+
+        public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        }
+
+        public abstract int getItemCount();
+
+        public int getItemViewType(int position) {
+            return 0;
+        }
+
+        public long getItemId(int position) {
+            return NO_ID;
+        }
+
+        public void setHasStableIds(boolean hasStableIds) {
+            if (hasObservers())
+                throw new IllegalStateException("Cannot change whether this adapter has stable IDs while the adapter has registered observers.");
+            mHasStableIds = hasStableIds;
+        }
+
+        public final boolean hasStableIds() {
+            return mHasStableIds;
+        }
+
+        public final boolean hasObservers() {
+            return !mObservers.isEmpty();
+        }
+
+        public void registerAdapterDataObserver(AdapterDataObserver observer) {
+            mObservers.add(observer);
+        }
+
+        public void unregisterAdapterDataObserver(AdapterDataObserver observer) {
+            mObservers.remove(observer);
+        }
+
+        public final void notifyDataSetChanged() {
+            for (int i = mObservers.size() - 1; i >= 0; i--)
+                mObservers.get(i).onChanged();
+        }
+
+        public final void notifyItemChanged(int position) {
+            notifyItemRangeChanged(position, 1, null);
+        }
+
+        public final void notifyItemChanged(int position, Object payload) {
+            notifyItemRangeChanged(position, 1, payload);
+        }
+
+        public final void notifyItemRangeChanged(int positionStart, int itemCount) {
+            notifyItemRangeChanged(positionStart, itemCount, null);
+        }
+
+        public final void notifyItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            for (int i = mObservers.size() - 1; i >= 0; i--)
+                mObservers.get(i).onItemRangeChanged(positionStart, itemCount, payload);
+        }
+
+        public final void notifyItemInserted(int position) {
+            notifyItemRangeInserted(position, 1);
+        }
+
+        public final void notifyItemRangeInserted(int positionStart, int itemCount) {
+            for (int i = mObservers.size() - 1; i >= 0; i--)
+                mObservers.get(i).onItemRangeInserted(positionStart, itemCount);
+        }
+
+        public final void notifyItemRemoved(int position) {
+            notifyItemRangeRemoved(position, 1);
+        }
+
+        public final void notifyItemRangeRemoved(int positionStart, int itemCount) {
+            for (int i = mObservers.size() - 1; i >= 0; i--)
+                mObservers.get(i).onItemRangeRemoved(positionStart, itemCount);
+        }
+
+        public final void notifyItemMoved(int fromPosition, int toPosition) {
+            for (int i = mObservers.size() - 1; i >= 0; i--)
+                mObservers.get(i).onItemRangeMoved(fromPosition, toPosition, 1);
+        }
+
+    }
+
+    public static abstract class AdapterDataObserver {
+
+        public void onChanged() {
+        }
+
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+        }
+
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            onItemRangeChanged(positionStart, itemCount);
+        }
+
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+        }
+
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+        }
+
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        }
+
+    }
+
+    public static abstract class ViewHolder {
+
+        public final View itemView;
+
+        public ViewHolder(View itemView) {
+            this.itemView = itemView;
+        }
+
+        public final int getAdapterPosition() {
+            return NO_POSITION;
+        }
+
+        public final int getItemViewType() {
+            return 0;
+        }
+
+    }
+
+}
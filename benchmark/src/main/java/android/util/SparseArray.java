@@ -0,0 +1,54 @@
+package android.util;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public class SparseArray<E> {
+
+    // Sorted like the keys of the Android class, so that indexes match
+    private final TreeMap<Integer, E> mValues = new TreeMap<Integer, E>();
+
+    public E get(int key) {
+        return mValues.get(key);
+    }
+
+    public void put(int key, E value) {
+        mValues.put(key, value);
+    }
+
+    public void delete(int key) {
+        mValues.remove(key);
+    }
+
+    public void remove(int key) {
+        mValues.remove(key);
+    }
+
+    public void clear() {
+        mValues.clear();
+    }
+
+    public int size() {
+        return mValues.size();
+    }
+
+    public int keyAt(int index) {
+        return entryAt(index).getKey();
+    }
+
+    public E valueAt(int index) {
+        return entryAt(index).getValue();
+    }
+
+    private Map.Entry<Integer, E> entryAt(int index) {
+        Iterator<Map.Entry<Integer, E>> iterator = mValues.entrySet().iterator();
+        for (int i = 0; i < index; i++)
+            iterator.next();
+        return iterator.next();
+    }
+
+}
@@ -0,0 +1,33 @@
+package android.util;
+
+import java.util.HashMap;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public class SparseIntArray {
+
+    private final HashMap<Integer, Integer> mValues = new HashMap<Integer, Integer>();
+
+    public int get(int key) {
+        return get(key, 0);
+    }
+
+    public int get(int key, int valueIfKeyNotFound) {
+        Integer value = mValues.get(key);
+        return value != null ? value : valueIfKeyNotFound;
+    }
+
+    public void put(int key, int value) {
+        mValues.put(key, value);
+    }
+
+    public void delete(int key) {
+        mValues.remove(key);
+    }
+
+    public int size() {
+        return mValues.size();
+    }
+
+}
@@ -0,0 +1,29 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public class View {
+
+    public View(Context context) {
+    }
+
+    public int getLeft() {
+        return 0;
+    }
+
+    public int getTop() {
+        return 0;
+    }
+
+    public int getPaddingLeft() {
+        return 0;
+    }
+
+    public int getPaddingTop() {
+        return 0;
+    }
+
+}
@@ -0,0 +1,14 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * Stub of the Android class, only what the benchmarked sources use
+ */
+public class ViewGroup extends View {
+
+    public ViewGroup(Context context) {
+        super(context);
+    }
+
+}
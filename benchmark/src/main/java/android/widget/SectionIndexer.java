@@ -0,0 +1,14 @@
+package android.widget;
+
+/**
+ * Stub of the Android interface, only what the benchmarked sources use
+ */
+public interface SectionIndexer {
+
+    Object[] getSections();
+
+    int getPositionForSection(int sectionIndex);
+
+    int getSectionForPosition(int position);
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview.benchmark;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import me.psycoder.sectionedrecyclerview.SectionedRecyclerViewAdapter;
+
+/**
+ * Adapter with a fixed number of sections of equal size, optionally with headers and footers.
+ * Binding only reads the section position so that the measured cost is the cost of the adapter.
+ */
+public class BenchmarkAdapter extends SectionedRecyclerViewAdapter<BenchmarkAdapter.Holder> {
+
+    private static final int[] ITEM_VIEW_TYPES = { 1, 2 };
+
+    private final int mSectionCount;
+    private final int mItemsPerSection;
+    private final boolean mHeaders;
+    private final boolean mFooters;
+
+    public BenchmarkAdapter(int sectionCount, int itemsPerSection, boolean headers, boolean footers) {
+        mSectionCount = sectionCount;
+        mItemsPerSection = itemsPerSection;
+        mHeaders = headers;
+        mFooters = footers;
+    }
+
+    @Override
+    public int getSectionCount() {
+        return mSectionCount;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+        return mItemsPerSection;
+    }
+
+    @Override
+    public boolean hasHeader(int section) {
+        return mHeaders;
+    }
+
+    @Override
+    public boolean hasFooter(int section) {
+        return mFooters;
+    }
+
+    @Override
+    public int getItemViewType(int section, int sectionPosition, int adapterPosition) {
+        return ITEM_VIEW_TYPES[sectionPosition & 1];
+    }
+
+    @Override
+    public int[] getItemViewTypes(int section) {
+        return ITEM_VIEW_TYPES;
+    }
+
+    @Override
+    public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return new Holder(new View(null));
+    }
+
+    /**
+     * Exposes {@link #adapterToSectionPosition(int, int[])} to the benchmark
+     */
+    public int[] toSectionPosition(int adapterPosition, int[] pos) {
+        return adapterToSectionPosition(adapterPosition, pos);
+    }
+
+    /**
+     * Exposes {@link #sectionToAdapterPosition(int, int)} to the benchmark
+     */
+    public int toAdapterPosition(int section, int sectionPosition) {
+        return sectionToAdapterPosition(section, sectionPosition);
+    }
+
+    public static class Holder extends SectionedRecyclerViewAdapter.ViewHolder {
+
+        public int mChecksum;
+
+        public Holder(View itemView) {
+            super(itemView);
+        }
+
+        @Override
+        public void bind(int section, int sectionPosition, int adapterPosition) {
+            mChecksum += section + sectionPosition;
+        }
+
+        @Override
+        public void bindHeader(int section, int adapterPosition) {
+            mChecksum += section;
+        }
+
+        @Override
+        public void bindFooter(int section, int adapterPosition) {
+            mChecksum -= section;
+        }
+
+    }
+
+}
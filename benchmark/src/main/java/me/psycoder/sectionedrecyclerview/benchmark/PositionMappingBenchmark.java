@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Sweeps section count, items per section, access pattern and adapter configuration and prints
+ * time and bytes allocated per operation for every adapter operation. Each measurement is
+ * preceded by a warm up so that the code is compiled before it is measured.
+ * Run with {@code ./gradlew :benchmark:benchmark}, pass {@code quick} as argument for a shorter sweep.
+ */
+public class PositionMappingBenchmark {
+
+    private static final int[] SECTION_COUNTS = { 10, 100, 1000, 10000, 100000 };
+    private static final int[] ITEMS_PER_SECTION = { 1, 10, 100 };
+    private static final int MAX_ROWS = 10000000;
+
+    private static final String MODE_LINEAR = "linear";
+    private static final String MODE_INDEX = "index";
+    private static final String MODE_INDEX_TABLE = "index+table";
+
+    private static long sSink;
+
+    public static void main(String[] args) {
+        boolean quick = args.length > 0 && "quick".equals(args[0]);
+        long warmupNanos = (quick ? 50 : 300) * 1000000L;
+        long measureNanos = (quick ? 100 : 1000) * 1000000L;
+
+        System.out.println(String.format(Locale.US, "%-12s %8s %6s %-11s %-25s %12s %10s",
+                "mode", "sections", "items", "pattern", "operation", "ns/op", "bytes/op"));
+        for (int sectionCount : SECTION_COUNTS) {
+            for (int itemsPerSection : ITEMS_PER_SECTION) {
+                if (sectionCount * itemsPerSection > MAX_ROWS)
+                    continue;
+                for (String mode : new String[] { MODE_LINEAR, MODE_INDEX, MODE_INDEX_TABLE }) {
+                    BenchmarkAdapter adapter = new BenchmarkAdapter(sectionCount, itemsPerSection, true, true);
+                    adapter.setSectionIndexEnabled(!MODE_LINEAR.equals(mode));
+                    adapter.setViewTypeTableEnabled(MODE_INDEX_TABLE.equals(mode));
+                    for (int pattern = 0; pattern < Workload.PATTERN_NAMES.length; pattern++) {
+                        for (int op = 0; op < Workload.OP_NAMES.length; op++) {
+                            Workload workload = new Workload(adapter, op, pattern, sectionCount * 31L + itemsPerSection);
+                            measure(workload, warmupNanos);
+                            double[] result = measure(workload, measureNanos);
+                            System.out.println(String.format(Locale.US, "%-12s %8d %6d %-11s %-25s %12.1f %10.2f",
+                                    mode, sectionCount, itemsPerSection, Workload.PATTERN_NAMES[pattern],
+                                    Workload.OP_NAMES[op], result[0], result[1]));
+                        }
+                    }
+                }
+            }
+        }
+        if (sSink == 42)
+            System.out.println();
+    }
+
+    /**
+     * Runs the workload in doubling batches until {@code nanos} have passed
+     * @return Nanoseconds and bytes allocated per operation
+     */
+    private static double[] measure(Workload workload, long nanos) {
+        long operations = 0;
+        long elapsed = 0;
+        long allocated = 0;
+        for (int iterations = 16; elapsed < nanos; iterations = Math.min(iterations * 2, 1 << 22)) {
+            long bytes = Workload.allocatedBytes();
+            long start = System.nanoTime();
+            sSink += workload.run(iterations);
+            elapsed += System.nanoTime() - start;
+            allocated += Workload.allocatedBytes() - bytes;
+            operations += iterations;
+        }
+        return new double[] { (double) elapsed / operations, (double) allocated / operations };
+    }
+
+}
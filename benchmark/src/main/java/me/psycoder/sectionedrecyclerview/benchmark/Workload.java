@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * One adapter operation replayed over precomputed adapter positions which follow an access
+ * pattern. Positions are computed up front so that replaying them allocates nothing.
+ */
+public class Workload {
+
+    public static final int OP_VIEW_TYPE = 0;
+    public static final int OP_BIND = 1;
+    public static final int OP_TO_SECTION_POSITION = 2;
+    public static final int OP_TO_ADAPTER_POSITION = 3;
+    public static final String[] OP_NAMES = { "getItemViewType", "onBindViewHolder",
+            "adapterToSectionPosition", "sectionToAdapterPosition" };
+
+    /**
+     * Rows visited in order, like a slow scroll
+     */
+    public static final int PATTERN_SEQUENTIAL = 0;
+    /**
+     * Rows visited at random, like jumps through a fast scroller
+     */
+    public static final int PATTERN_RANDOM = 1;
+    /**
+     * Runs of a screen of rows separated by long skips, like a fling
+     */
+    public static final int PATTERN_FLING = 2;
+    public static final String[] PATTERN_NAMES = { "sequential", "random", "fling" };
+
+    private static final int POSITION_COUNT = 1 << 16;
+    private static final int SCREEN_ROWS = 12;
+    private static final int FLING_SKIP = 240;
+
+    private final BenchmarkAdapter mAdapter;
+    private final BenchmarkAdapter.Holder mHolder;
+    private final int mOp;
+    private final int[] mPositions = new int[POSITION_COUNT];
+    private final int[] mSections = new int[POSITION_COUNT];
+    private final int[] mSectionPositions = new int[POSITION_COUNT];
+    private final int[] mTmp = new int[2];
+    private int mNext;
+
+    public Workload(BenchmarkAdapter adapter, int op, int pattern, long seed) {
+        mAdapter = adapter;
+        mHolder = adapter.onCreateViewHolder(null, 0);
+        mOp = op;
+        int itemCount = adapter.getItemCount();
+        Random random = new Random(seed);
+        int position = 0;
+        // Section positions are resolved once through the index, even when measuring without it
+        boolean indexEnabled = adapter.isSectionIndexEnabled();
+        adapter.setSectionIndexEnabled(true);
+        for (int i = 0; i < POSITION_COUNT; i++) {
+            switch (pattern) {
+                case PATTERN_SEQUENTIAL:
+                    position = i % itemCount;
+                    break;
+                case PATTERN_RANDOM:
+                    position = random.nextInt(itemCount);
+                    break;
+                case PATTERN_FLING:
+                    position = (i / SCREEN_ROWS * (SCREEN_ROWS + FLING_SKIP) + i % SCREEN_ROWS) % itemCount;
+                    break;
+            }
+            mPositions[i] = position;
+            int[] pos = adapter.toSectionPosition(position, mTmp);
+            mSections[i] = pos[0];
+            mSectionPositions[i] = pos[1];
+        }
+        adapter.setSectionIndexEnabled(indexEnabled);
+    }
+
+    /**
+     * Runs the operation {@code iterations} times
+     * @return A value depending on every result so that no call is optimized away
+     */
+    public long run(int iterations) {
+        long checksum = 0;
+        int next = mNext;
+        for (int i = 0; i < iterations; i++) {
+            int index = next++ & (POSITION_COUNT - 1);
+            switch (mOp) {
+                case OP_VIEW_TYPE:
+                    checksum += mAdapter.getItemViewType(mPositions[index]);
+                    break;
+                case OP_BIND:
+                    mAdapter.onBindViewHolder(mHolder, mPositions[index]);
+                    break;
+                case OP_TO_SECTION_POSITION:
+                    checksum += mAdapter.toSectionPosition(mPositions[index], mTmp)[1];
+                    break;
+                case OP_TO_ADAPTER_POSITION:
+                    checksum += mAdapter.toAdapterPosition(mSections[index], mSectionPositions[index]);
+                    break;
+            }
+        }
+        mNext = next;
+        return checksum + mHolder.mChecksum;
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far
+     */
+    @SuppressWarnings("restriction")
+    public static long allocatedBytes() {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+}
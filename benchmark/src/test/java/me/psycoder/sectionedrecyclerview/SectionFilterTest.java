@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Section observers keep what they hold for sections which a filter result leaves in place
+ */
+public class SectionFilterTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void precomputer_keepsResultsOfUnchangedSections() {
+        FilterAdapter adapter = new FilterAdapter(
+                Arrays.asList("apple", "grape"), Arrays.asList("banana"), Arrays.asList("cherry", "apricot"));
+        SectionPrecomputer<String> precomputer = new SectionPrecomputer<String>(adapter, 100, DIRECT) {
+            @Override
+            public String compute(int section, int sectionPosition) {
+                return "computed";
+            }
+        };
+        precomputer.precompute(0, 2);
+        adapter.mFilter.filter("p");
+        assertEquals(2, adapter.getSectionCount());
+        assertEquals("computed", precomputer.get(0, 0));
+        assertEquals("computed", precomputer.get(0, 1));
+        // Section shown after the hidden one holds other items now
+        assertNull(precomputer.get(1, 0));
+    }
+
+    @Test
+    public void selection_followsFilteredItems() {
+        FilterAdapter adapter = new FilterAdapter(
+                Arrays.asList("apple", "banana", "grape"), Arrays.asList("kiwi"), Arrays.asList("pear", "plum"));
+        SectionSelection selection = new SectionSelection(adapter);
+        selection.setSelected(0, 2, true);
+        selection.setSelected(2, 1, true);
+        adapter.mFilter.filter("p");
+        // apple, grape / pear, plum
+        assertTrue(selection.isSelected(0, 1));
+        assertTrue(selection.isSelected(1, 1));
+        assertFalse(selection.isSelected(1, 0));
+        adapter.mFilter.filter("");
+        assertTrue(selection.isSelected(0, 2));
+        assertTrue(selection.isSelected(2, 1));
+        assertEquals(2, selection.getSelectedCount());
+    }
+
+    /**
+     * Adapter over sections of labelled items shown through a filter matching labels which
+     * contain the query
+     */
+    static class FilterAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerViewAdapter.ViewHolder> {
+
+        final List<List<String>> mSource;
+        final SectionFilter mFilter;
+
+        @SafeVarargs
+        FilterAdapter(List<String>... sections) {
+            mSource = Arrays.asList(sections);
+            mFilter = new SectionFilter(this, DIRECT) {
+                @Override
+                public int getSourceSectionCount() {
+                    return mSource.size();
+                }
+
+                @Override
+                public int getSourceItemCount(int sourceSection) {
+                    return mSource.get(sourceSection).size();
+                }
+
+                @Override
+                public boolean matches(int sourceSection, int sourcePosition, String query) {
+                    return mSource.get(sourceSection).get(sourcePosition).contains(query);
+                }
+            };
+        }
+
+        @Override
+        public int getSectionCount() {
+            return mFilter.getSectionCount();
+        }
+
+        @Override
+        public int getItemCount(int section) {
+            return mFilter.getItemCount(section);
+        }
+
+        @Override
+        public boolean hasHeader(int section) {
+            return true;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+    }
+
+}
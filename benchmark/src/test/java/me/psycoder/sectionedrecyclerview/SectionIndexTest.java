@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Section offsets of the Fenwick tree checked against plain prefix sums, and kept in place by
+ * section-aware notifications
+ */
+public class SectionIndexTest {
+
+    @Test
+    public void build_matchesPrefixSums() {
+        Random random = new Random(2);
+        SectionIndex index = new SectionIndex();
+        for (int iteration = 0; iteration < 200; iteration++) {
+            int[] spans = randomSpans(random);
+            // Reused across sizes, so a smaller build must not read entries of a larger one
+            index.build(spans);
+            assertOffsets(spans, index, "iteration " + iteration);
+        }
+    }
+
+    @Test
+    public void update_matchesRebuild() {
+        Random random = new Random(3);
+        for (int iteration = 0; iteration < 100; iteration++) {
+            int[] spans = randomSpans(random);
+            SectionIndex index = new SectionIndex();
+            index.build(spans);
+            for (int step = 0; step < 30 && spans.length > 0; step++) {
+                int section = random.nextInt(spans.length);
+                int delta = random.nextInt(7) - spans[section];
+                spans[section] += delta;
+                index.update(section, delta);
+                assertOffsets(spans, index, "iteration " + iteration + " step " + step);
+            }
+        }
+    }
+
+    @Test
+    public void getSection_skipsEmptySections() {
+        SectionIndex index = new SectionIndex();
+        index.build(new int[]{0, 2, 0, 0, 1, 0});
+        assertEquals(1, index.getSection(0));
+        assertEquals(1, index.getSection(1));
+        assertEquals(4, index.getSection(2));
+        assertEquals(RecyclerView.NO_POSITION, index.getSection(3));
+        assertEquals(RecyclerView.NO_POSITION, index.getSection(-1));
+    }
+
+    @Test
+    public void set_copiesOffsets() {
+        SectionIndex other = new SectionIndex();
+        other.build(new int[]{3, 0, 5});
+        SectionIndex index = new SectionIndex();
+        index.build(new int[]{1, 1, 1, 1, 1, 1, 1, 1, 1});
+        index.set(other);
+        assertTrue(index.isValid());
+        assertOffsets(new int[]{3, 0, 5}, index, "set");
+    }
+
+    @Test
+    public void build_fromAdapter_readsSectionSpans() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        adapter.addSection(3, true, true);
+        adapter.addSection(0, true, false);
+        adapter.addSection(4, true, true);
+        adapter.addSection(2, false, true);
+        adapter.setSectionExpanded(2, false);
+        SectionIndex index = new SectionIndex();
+        index.build(adapter);
+        assertOffsets(new int[]{5, 1, 1, 3}, index, "adapter");
+    }
+
+    @Test
+    public void sectionAwareNotify_keepsIndexConsistent() {
+        Random random = new Random(5);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            ShadowAdapter adapter = new ShadowAdapter();
+            adapter.setSectionIndexEnabled(true);
+            int sectionCount = 1 + random.nextInt(6);
+            for (int section = 0; section < sectionCount; section++)
+                adapter.addSection(random.nextInt(4), random.nextBoolean(), random.nextBoolean());
+            for (int step = 0; step < 20; step++) {
+                List<String> before = adapter.rows();
+                int section = random.nextInt(sectionCount);
+                List<String> items = adapter.mSections.get(section);
+                if (random.nextInt(6) == 0) {
+                    adapter.toggleSection(section);
+                } else if (items.isEmpty() || random.nextBoolean()) {
+                    int position = random.nextInt(items.size() + 1);
+                    int count = 1 + random.nextInt(3);
+                    for (int i = 0; i < count; i++)
+                        items.add(position + i, adapter.newItem());
+                    adapter.notifyItemRangeInserted(section, position, count);
+                } else {
+                    int position = random.nextInt(items.size());
+                    int count = 1 + random.nextInt(items.size() - position);
+                    items.subList(position, position + count).clear();
+                    adapter.notifyItemRangeRemoved(section, position, count);
+                }
+                adapter.assertShown(before, "iteration " + iteration + " step " + step);
+            }
+        }
+    }
+
+    private static int[] randomSpans(Random random) {
+        int[] spans = new int[random.nextInt(40)];
+        for (int i = 0; i < spans.length; i++)
+            spans[i] = random.nextInt(3) == 0 ? 0 : random.nextInt(6);
+        return spans;
+    }
+
+    private static void assertOffsets(int[] spans, SectionIndex index, String message) {
+        int start = 0;
+        for (int section = 0; section < spans.length; section++) {
+            assertEquals(message + " start of " + section, start, index.getSectionStart(section));
+            for (int i = 0; i < spans[section]; i++)
+                assertEquals(message + " section of " + (start + i), section, index.getSection(start + i));
+            start += spans[section];
+        }
+        assertEquals(message + " end", start, index.getSectionStart(spans.length));
+        assertEquals(message + " item count", start, index.getItemCount());
+        assertEquals(message + " past end", RecyclerView.NO_POSITION, index.getSection(start));
+    }
+
+}
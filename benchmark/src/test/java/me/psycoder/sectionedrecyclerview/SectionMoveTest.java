@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Moves across sections notified with section positions, checked against a shadow list of rows
+ */
+public class SectionMoveTest {
+
+    @Test
+    public void moveToEarlierSection_afterBatchWithIndexDisabled() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        adapter.addSection(2, false, false);
+        adapter.addSection(1, false, false);
+        adapter.beginBatch();
+        adapter.endBatch();
+        List<String> before = adapter.rows();
+        adapter.mSections.get(0).add(1, adapter.mSections.get(1).remove(0));
+        adapter.notifyItemMoved(1, 0, 0, 1);
+        assertEquals(1, adapter.mNotifications.size());
+        assertArrayEquals(new int[]{ShadowAdapter.MOVE, 2, 1}, adapter.mNotifications.get(0));
+        adapter.assertShown(before, "move");
+    }
+
+    @Test
+    public void moveAcrossSections_matchesShadowRows() {
+        Random random = new Random(19);
+        for (int iteration = 0; iteration < 300; iteration++) {
+            ShadowAdapter adapter = new ShadowAdapter();
+            adapter.setSectionIndexEnabled(random.nextBoolean());
+            int sectionCount = 1 + random.nextInt(5);
+            for (int section = 0; section < sectionCount; section++)
+                adapter.addSection(random.nextInt(4), random.nextBoolean(), random.nextBoolean());
+            for (int step = 0; step < 20; step++) {
+                int fromSection = random.nextInt(sectionCount);
+                List<String> from = adapter.mSections.get(fromSection);
+                if (from.isEmpty())
+                    continue;
+                int toSection = random.nextInt(sectionCount);
+                boolean batch = random.nextInt(3) == 0;
+                if (random.nextInt(4) == 0) {
+                    // A batch leaves a valid index behind even if the index is disabled
+                    adapter.beginBatch();
+                    adapter.endBatch();
+                }
+                List<String> before = adapter.rows();
+                // Batches are started before the data changes
+                if (batch)
+                    adapter.beginBatch();
+                int fromPosition = random.nextInt(from.size());
+                String item = from.remove(fromPosition);
+                List<String> to = adapter.mSections.get(toSection);
+                int toPosition = random.nextInt(to.size() + 1);
+                to.add(toPosition, item);
+                adapter.notifyItemMoved(fromSection, fromPosition, toSection, toPosition);
+                if (batch)
+                    adapter.endBatch();
+                adapter.assertShown(before, "iteration " + iteration + " step " + step);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Section observers, i.e. selection and precomputed results, follow sections and items changed by
+ * {@link SectionedDiffer}, whose difference is computed and applied at once
+ */
+public class SectionedDifferTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Test
+    public void selection_followsInsertedItem() {
+        DifferAdapter adapter = new DifferAdapter();
+        SectionSelection selection = new SectionSelection(adapter);
+        adapter.submit(section("a", "b", "c"));
+        selection.setSelected(0, 0, true);
+        adapter.submit(section("new", "a", "b", "c"));
+        assertFalse(selection.isSelected(0, 0));
+        assertTrue(selection.isSelected(0, 1));
+        assertEquals(1, selection.getSelectedCount());
+    }
+
+    @Test
+    public void selection_followsInsertedAndRemovedSections() {
+        DifferAdapter adapter = new DifferAdapter();
+        SectionSelection selection = new SectionSelection(adapter);
+        adapter.submit(section("a", "b"), section("c", "d"));
+        selection.setSelected(1, 1, true);
+        adapter.submit(section("x"), section("a", "b"), section("c", "d"));
+        assertTrue(selection.isSelected(2, 1));
+        assertFalse(selection.isSelected(1, 1));
+        adapter.submit(section("c", "d"));
+        assertTrue(selection.isSelected(0, 1));
+        adapter.submit(section("a", "b"));
+        assertEquals(0, selection.getSelectedCount());
+        assertFalse(selection.isSelected(0, 1));
+    }
+
+    @Test
+    public void selection_droppedWithAllSections() {
+        DifferAdapter adapter = new DifferAdapter();
+        SectionSelection selection = new SectionSelection(adapter);
+        adapter.submit(section("a", "b"));
+        selection.setSelected(0, 1, true);
+        adapter.mDiffer.submitList(Collections.<List<String>>emptyList());
+        adapter.submit(section("a", "b"));
+        assertEquals(0, selection.getSelectedCount());
+        assertFalse(selection.isSelected(0, 1));
+    }
+
+    @Test
+    public void precomputer_dropsResultsShiftedByInsert() {
+        DifferAdapter adapter = new DifferAdapter();
+        SectionPrecomputer<String> precomputer = adapter.newPrecomputer();
+        adapter.submit(section("a", "b"), section("c", "d"));
+        precomputer.precompute(0, 1);
+        assertEquals("a", precomputer.get(0, 0));
+        assertEquals("c", precomputer.get(1, 0));
+        adapter.submit(section("new", "a", "b"), section("c", "d"));
+        assertNull(precomputer.get(0, 0));
+        assertNull(precomputer.get(0, 1));
+        // Sections before and after the changed items keep their results
+        assertEquals("c", precomputer.get(1, 0));
+        assertEquals("new", precomputer.getOrCompute(0, 0));
+        assertEquals("a", precomputer.getOrCompute(0, 1));
+    }
+
+    @Test
+    public void precomputer_dropsResultsOfShiftedSections() {
+        DifferAdapter adapter = new DifferAdapter();
+        SectionPrecomputer<String> precomputer = adapter.newPrecomputer();
+        adapter.submit(section("a", "b"), section("c", "d"));
+        precomputer.precompute(0, 1);
+        adapter.submit(section("a", "b"), section("x"), section("c", "d"));
+        assertEquals("a", precomputer.get(0, 0));
+        assertNull(precomputer.get(1, 0));
+        assertEquals("c", precomputer.getOrCompute(2, 0));
+    }
+
+    private static List<String> section(String... items) {
+        return Arrays.asList(items);
+    }
+
+    /**
+     * Adapter over sections of labelled items, identified by their last item
+     */
+    static class DifferAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerViewAdapter.ViewHolder> {
+
+        final SectionedDiffer<List<String>, String> mDiffer = new SectionedDiffer<List<String>, String>(this,
+                new SectionedDiffer.Callback<List<String>, String>() {
+                    @Override
+                    public Object getSectionId(List<String> section) {
+                        return section.get(section.size() - 1);
+                    }
+
+                    @Override
+                    public List<String> getItems(List<String> section) {
+                        return section;
+                    }
+
+                    @Override
+                    public boolean areItemsTheSame(String oldItem, String newItem) {
+                        return oldItem.equals(newItem);
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(String oldItem, String newItem) {
+                        return oldItem.equals(newItem);
+                    }
+                }, DIRECT);
+
+        /**
+         * @return Precomputer of labels of items, computed at once
+         */
+        SectionPrecomputer<String> newPrecomputer() {
+            return new SectionPrecomputer<String>(this, 100, DIRECT) {
+                @Override
+                public String compute(int section, int sectionPosition) {
+                    return mDiffer.getCurrentList().get(section).get(sectionPosition);
+                }
+            };
+        }
+
+        @SafeVarargs
+        final void submit(List<String>... sections) {
+            mDiffer.submitList(Arrays.asList(sections));
+        }
+
+        @Override
+        public int getSectionCount() {
+            return mDiffer.getCurrentList().size();
+        }
+
+        @Override
+        public int getItemCount(int section) {
+            return mDiffer.getCurrentList().get(section).size();
+        }
+
+        @Override
+        public boolean hasHeader(int section) {
+            return true;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+    }
+
+}
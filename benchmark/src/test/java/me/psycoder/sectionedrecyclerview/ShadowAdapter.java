@@ -0,0 +1,190 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Adapter over lists of labelled items which records dispatched notifications, so tests can
+ * replay them on the rows shown before a change and compare with the rows shown after it
+ */
+class ShadowAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerViewAdapter.ViewHolder> {
+
+    /**
+     * Row inserted by a replayed notification, matches any row
+     */
+    static final String INSERTED = "?";
+
+    final List<List<String>> mSections = new ArrayList<List<String>>();
+    final List<Boolean> mHeaders = new ArrayList<Boolean>();
+    final List<Boolean> mFooters = new ArrayList<Boolean>();
+    // Notifications as triples of type, position and item count or target position
+    final List<int[]> mNotifications = new ArrayList<int[]>();
+    private int mNextItem;
+
+    static final int INSERT = 0;
+    static final int REMOVE = 1;
+    static final int CHANGE = 2;
+    static final int MOVE = 3;
+    static final int DATA_SET = 4;
+
+    ShadowAdapter() {
+        // Registered like RecyclerView does, so the adapter observes its own notifications
+        onAttachedToRecyclerView(new RecyclerView(null));
+        registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                mNotifications.add(new int[]{DATA_SET, 0, 0});
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount) {
+                mNotifications.add(new int[]{CHANGE, positionStart, itemCount});
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mNotifications.add(new int[]{INSERT, positionStart, itemCount});
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                mNotifications.add(new int[]{REMOVE, positionStart, itemCount});
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                mNotifications.add(new int[]{MOVE, fromPosition, toPosition});
+            }
+        });
+    }
+
+    /**
+     * Appends a section of {@code itemCount} new items
+     */
+    void addSection(int itemCount, boolean hasHeader, boolean hasFooter) {
+        List<String> items = new ArrayList<String>();
+        for (int i = 0; i < itemCount; i++)
+            items.add(newItem());
+        mSections.add(items);
+        mHeaders.add(hasHeader);
+        mFooters.add(hasFooter);
+    }
+
+    String newItem() {
+        return "i" + mNextItem++;
+    }
+
+    @Override
+    public int getSectionCount() {
+        return mSections.size();
+    }
+
+    @Override
+    public int getItemCount(int section) {
+        return mSections.get(section).size();
+    }
+
+    @Override
+    public boolean hasHeader(int section) {
+        return mHeaders.get(section);
+    }
+
+    @Override
+    public boolean hasFooter(int section) {
+        return mFooters.get(section);
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        return null;
+    }
+
+    /**
+     * @return Labels of rows shown for the current data
+     */
+    List<String> rows() {
+        List<String> rows = new ArrayList<String>();
+        for (int section = 0; section < mSections.size(); section++) {
+            if (hasHeader(section))
+                rows.add("H" + section);
+            if (!isSectionExpanded(section))
+                continue;
+            rows.addAll(mSections.get(section));
+            if (hasFooter(section))
+                rows.add("F" + section);
+        }
+        return rows;
+    }
+
+    /**
+     * Replays recorded notifications on {@code before} and clears them
+     * @return Rows RecyclerView would show after the notifications
+     */
+    List<String> replay(List<String> before) {
+        List<String> rows = new ArrayList<String>(before);
+        for (int[] notification : mNotifications) {
+            int position = notification[1], count = notification[2];
+            switch (notification[0]) {
+                case INSERT:
+                    for (int i = 0; i < count; i++)
+                        rows.add(position, INSERTED);
+                    break;
+                case REMOVE:
+                    for (int i = 0; i < count; i++)
+                        rows.remove(position);
+                    break;
+                case MOVE:
+                    rows.add(count, rows.remove(position));
+                    break;
+                case DATA_SET:
+                    throw new AssertionError("Unexpected data set change");
+            }
+        }
+        mNotifications.clear();
+        return rows;
+    }
+
+    /**
+     * Asserts that replaying notifications on {@code before} shows current data, and that every
+     * row maps back to its section position
+     */
+    void assertShown(List<String> before, String message) {
+        List<String> expected = rows();
+        List<String> replayed = replay(before);
+        assertEquals(message + " row count", expected.size(), replayed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            if (!INSERTED.equals(replayed.get(i)))
+                assertEquals(message + " row " + i, expected.get(i), replayed.get(i));
+        }
+        assertEquals(message + " item count", expected.size(), getItemCount());
+        int[] position = new int[2];
+        for (int i = 0; i < expected.size(); i++) {
+            adapterToSectionPosition(i, position);
+            String row = position[1] == POSITION_HEADER ? "H" + position[0]
+                    : position[1] == POSITION_FOOTER ? "F" + position[0]
+                    : mSections.get(position[0]).get(position[1]);
+            assertEquals(message + " mapping of " + i, expected.get(i), row);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stable ids can only be changed while an adapter has no observers, which is usually done in the
+ * constructor of a subclass
+ */
+public class StableIdsTest {
+
+    @Test
+    public void setHasStableIds_inSubclassConstructor() {
+        StableAdapter adapter = new StableAdapter();
+        assertTrue(adapter.hasStableIds());
+    }
+
+    @Test
+    public void setHasStableIds_onCompositeAdapter() {
+        CompositeSectionedAdapter adapter = new CompositeSectionedAdapter();
+        adapter.setHasStableIds(true);
+        assertTrue(adapter.hasStableIds());
+    }
+
+    @Test
+    public void compositeItemId_noIdWithoutStableChildIds() {
+        CompositeSectionedAdapter adapter = new CompositeSectionedAdapter();
+        adapter.addAdapter(new ChildAdapter(false, 5));
+        adapter.addAdapter(new ChildAdapter(true, RecyclerView.NO_ID));
+        adapter.addAdapter(new ChildAdapter(true, 7));
+        assertEquals(RecyclerView.NO_ID, adapter.getItemId(0));
+        assertEquals(RecyclerView.NO_ID, adapter.getItemId(1));
+        assertEquals(SectionedRecyclerViewAdapter.packItemId(adapter.getSectionId(2), 7), adapter.getItemId(2));
+    }
+
+    @Test
+    public void observesChanges_onlyWhileAttached() {
+        StableAdapter adapter = new StableAdapter();
+        RecyclerView recyclerView = new RecyclerView(null);
+        adapter.onAttachedToRecyclerView(recyclerView);
+        assertTrue(adapter.hasObservers());
+        adapter.onDetachedFromRecyclerView(recyclerView);
+        assertFalse(adapter.hasObservers());
+    }
+
+    /**
+     * Child adapter of one item with id {@code id}
+     */
+    private static class ChildAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+        private final long mId;
+
+        ChildAdapter(boolean hasStableIds, long id) {
+            setHasStableIds(hasStableIds);
+            mId = id;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        }
+
+        @Override
+        public int getItemCount() {
+            return 1;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mId;
+        }
+
+    }
+
+    private static class StableAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerViewAdapter.ViewHolder> {
+
+        StableAdapter() {
+            setHasStableIds(true);
+        }
+
+        @Override
+        public int getSectionCount() {
+            return 2;
+        }
+
+        @Override
+        public int getItemCount(int section) {
+            return 3;
+        }
+
+        @Override
+        public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Merging of queued notifications, and batches of section-aware notifications dispatched through
+ * them
+ */
+public class UpdateCoalescerTest {
+
+    @Test
+    public void insert_mergesAdjacentRanges() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.insert(5, 2);
+        updates.insert(7, 1);
+        updates.insert(5, 3);
+        updates.insert(20, 1);
+        updates.flush();
+        assertNotifications(adapter, new int[]{ShadowAdapter.INSERT, 5, 6}, new int[]{ShadowAdapter.INSERT, 20, 1});
+    }
+
+    @Test
+    public void remove_mergesRangesEndingAtPreviousStart() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.remove(5, 2);
+        updates.remove(5, 1);
+        updates.remove(3, 2);
+        updates.remove(10, 1);
+        updates.flush();
+        assertNotifications(adapter, new int[]{ShadowAdapter.REMOVE, 3, 5}, new int[]{ShadowAdapter.REMOVE, 10, 1});
+    }
+
+    @Test
+    public void remove_ofInsertedItems_isNotDispatched() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.insert(4, 3);
+        updates.remove(5, 1);
+        updates.flush();
+        assertNotifications(adapter, new int[]{ShadowAdapter.INSERT, 4, 2});
+        updates.insert(4, 3);
+        updates.remove(4, 3);
+        assertTrue(updates.isEmpty());
+    }
+
+    @Test
+    public void change_mergesOverlappingRangesOfSamePayload() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.change(4, 2, "like");
+        updates.change(3, 4, "like");
+        updates.change(7, 1, "like");
+        updates.change(8, 1, null);
+        updates.change(9, 1, "like");
+        updates.flush();
+        assertNotifications(adapter, new int[]{ShadowAdapter.CHANGE, 3, 5}, new int[]{ShadowAdapter.CHANGE, 8, 1},
+                new int[]{ShadowAdapter.CHANGE, 9, 1});
+    }
+
+    @Test
+    public void change_ofInsertedItems_isNotDispatched() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.insert(2, 4);
+        updates.change(3, 2, null);
+        updates.flush();
+        assertNotifications(adapter, new int[]{ShadowAdapter.INSERT, 2, 4});
+    }
+
+    @Test
+    public void move_isKeptInOrder() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.insert(0, 1);
+        updates.move(3, 3);
+        updates.move(4, 1);
+        updates.insert(1, 1);
+        updates.flush();
+        assertNotifications(adapter, new int[]{ShadowAdapter.INSERT, 0, 1}, new int[]{ShadowAdapter.MOVE, 4, 1},
+                new int[]{ShadowAdapter.INSERT, 1, 1});
+    }
+
+    @Test
+    public void flush_clearsQueue() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        UpdateCoalescer updates = new UpdateCoalescer(adapter);
+        updates.remove(1, 1);
+        updates.flush();
+        adapter.mNotifications.clear();
+        updates.flush();
+        assertTrue(updates.isEmpty());
+        assertEquals(0, adapter.mNotifications.size());
+    }
+
+    @Test
+    public void batch_dispatchesWhenOutermostBatchEnds() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        adapter.addSection(2, true, false);
+        adapter.addSection(2, true, false);
+        List<String> before = adapter.rows();
+        adapter.beginBatch();
+        adapter.beginBatch();
+        adapter.mSections.get(1).add(adapter.newItem());
+        adapter.notifyItemInserted(1, 2);
+        adapter.endBatch();
+        assertTrue(adapter.isInBatch());
+        assertEquals(0, adapter.mNotifications.size());
+        adapter.mSections.get(1).add(adapter.newItem());
+        adapter.notifyItemInserted(1, 3);
+        adapter.endBatch();
+        assertEquals(1, adapter.mNotifications.size());
+        assertArrayEquals(new int[]{ShadowAdapter.INSERT, 6, 2}, adapter.mNotifications.get(0));
+        adapter.assertShown(before, "batch");
+    }
+
+    @Test
+    public void collapseAll_withoutHeaders_dispatchesSingleRange() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        for (int section = 0; section < 5; section++)
+            adapter.addSection(3, false, false);
+        List<String> before = adapter.rows();
+        adapter.collapseAllSections();
+        assertEquals(1, adapter.mNotifications.size());
+        assertArrayEquals(new int[]{ShadowAdapter.REMOVE, 0, 15}, adapter.mNotifications.get(0));
+        adapter.assertShown(before, "collapse");
+        before = adapter.rows();
+        adapter.expandAllSections();
+        assertEquals(1, adapter.mNotifications.size());
+        assertArrayEquals(new int[]{ShadowAdapter.INSERT, 0, 15}, adapter.mNotifications.get(0));
+        adapter.assertShown(before, "expand");
+    }
+
+    @Test
+    public void collapseAll_withHeaders_notifiesDataSetChanged() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        for (int section = 0; section < 5; section++)
+            adapter.addSection(3, true, false);
+        adapter.collapseAllSections();
+        assertNotifications(adapter, new int[]{ShadowAdapter.DATA_SET, 0, 0});
+        assertFalse(adapter.isInBatch());
+        assertEquals(5, adapter.getItemCount());
+        // Rows of a single section are still one range
+        adapter.setSectionExpanded(4, true);
+        adapter.mNotifications.clear();
+        List<String> before = adapter.rows();
+        adapter.collapseAllSections();
+        assertNotifications(adapter, new int[]{ShadowAdapter.REMOVE, 5, 3});
+        adapter.mNotifications.add(new int[]{ShadowAdapter.REMOVE, 5, 3});
+        adapter.assertShown(before, "collapse one");
+    }
+
+    @Test
+    public void endBatch_withoutBeginBatch_throws() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        try {
+            adapter.endBatch();
+            fail("endBatch() without beginBatch()");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void dataSetChange_inBatch_throws() {
+        ShadowAdapter adapter = new ShadowAdapter();
+        adapter.setSectionIndexEnabled(true);
+        adapter.addSection(2, true, false);
+        adapter.addSection(2, true, false);
+        List<String> before = adapter.rows();
+        adapter.beginBatch();
+        adapter.mSections.get(0).add(adapter.newItem());
+        adapter.notifyItemInserted(0, 2);
+        try {
+            adapter.notifyDataSetChanged();
+            fail("Data set change in a batch");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        try {
+            adapter.invalidateSectionIndex();
+            fail("Section index invalidated in a batch");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        // Offsets patched by the batch are still used
+        adapter.mSections.get(1).add(0, adapter.newItem());
+        adapter.notifyItemInserted(1, 0);
+        assertEquals(4, adapter.getSectionStart(1));
+        assertEquals(8, adapter.getItemCount());
+        adapter.endBatch();
+        // Seen by the recording observer before the adapter refused it
+        assertArrayEquals(new int[]{ShadowAdapter.DATA_SET, 0, 0}, adapter.mNotifications.remove(0));
+        adapter.assertShown(before, "batch");
+    }
+
+    @Test
+    public void batch_matchesShadowRows() {
+        Random random = new Random(5);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            ShadowAdapter adapter = new ShadowAdapter();
+            adapter.setSectionIndexEnabled(random.nextBoolean());
+            int sectionCount = 1 + random.nextInt(5);
+            for (int section = 0; section < sectionCount; section++)
+                adapter.addSection(random.nextInt(4), random.nextBoolean(), random.nextBoolean());
+            for (int batch = 0; batch < 5; batch++) {
+                List<String> before = adapter.rows();
+                adapter.beginBatch();
+                for (int step = 0; step < 10; step++) {
+                    int section = random.nextInt(sectionCount);
+                    List<String> items = adapter.mSections.get(section);
+                    int kind = random.nextInt(4);
+                    if (kind == 0 && !items.isEmpty()) {
+                        // Changes keep rows in place and are not replayed
+                        adapter.notifyItemChanged(section, random.nextInt(items.size()));
+                    } else if (kind == 1 && !items.isEmpty()) {
+                        int position = random.nextInt(items.size());
+                        items.remove(position);
+                        adapter.notifyItemRemoved(section, position);
+                    } else if (kind == 2 && !items.isEmpty()) {
+                        int toSection = random.nextInt(sectionCount);
+                        List<String> to = adapter.mSections.get(toSection);
+                        int position = random.nextInt(items.size());
+                        String item = items.remove(position);
+                        int toPosition = random.nextInt(to.size() + 1);
+                        to.add(toPosition, item);
+                        adapter.notifyItemMoved(section, position, toSection, toPosition);
+                    } else {
+                        int position = random.nextInt(items.size() + 1);
+                        items.add(position, adapter.newItem());
+                        adapter.notifyItemInserted(section, position);
+                    }
+                }
+                adapter.endBatch();
+                adapter.assertShown(before, "iteration " + iteration + " batch " + batch);
+            }
+        }
+    }
+
+    private static void assertNotifications(ShadowAdapter adapter, int[]... notifications) {
+        assertEquals(notifications.length, adapter.mNotifications.size());
+        for (int i = 0; i < notifications.length; i++)
+            assertArrayEquals(notifications[i], adapter.mNotifications.get(i));
+        adapter.mNotifications.clear();
+    }
+
+}
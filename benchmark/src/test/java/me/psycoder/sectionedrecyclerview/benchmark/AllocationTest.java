@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview.benchmark;
+
+import org.junit.Test;
+
+import me.psycoder.sectionedrecyclerview.SectionMetrics;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Fails when position mapping or binding starts allocating. Every operation is warmed up first,
+ * then run many times while bytes allocated by the thread are counted.
+ */
+public class AllocationTest {
+
+    private static final int WARMUP_ITERATIONS = 50000;
+    private static final int ITERATIONS = 200000;
+
+    @Test
+    public void getItemViewType_doesNotAllocate() {
+        assertNoAllocation(Workload.OP_VIEW_TYPE);
+    }
+
+    @Test
+    public void onBindViewHolder_doesNotAllocate() {
+        assertNoAllocation(Workload.OP_BIND);
+    }
+
+    @Test
+    public void adapterToSectionPosition_doesNotAllocate() {
+        assertNoAllocation(Workload.OP_TO_SECTION_POSITION);
+    }
+
+    @Test
+    public void sectionToAdapterPosition_doesNotAllocate() {
+        assertNoAllocation(Workload.OP_TO_ADAPTER_POSITION);
+    }
+
+    private static void assertNoAllocation(int op) {
+        // Linear walk, section index, index with view type table, index with metrics
+        for (int mode = 0; mode < 4; mode++) {
+            BenchmarkAdapter adapter = new BenchmarkAdapter(1000, 10, true, mode != 1);
+            adapter.setSectionIndexEnabled(mode > 0);
+            adapter.setViewTypeTableEnabled(mode == 2);
+            if (mode == 3) {
+                SectionMetrics metrics = new SectionMetrics();
+                metrics.setTraceEnabled(true);
+                adapter.setMetrics(metrics);
+            }
+            for (int pattern = 0; pattern < Workload.PATTERN_NAMES.length; pattern++) {
+                Workload workload = new Workload(adapter, op, pattern, 1);
+                workload.run(WARMUP_ITERATIONS);
+                long bytes = Workload.allocatedBytes();
+                workload.run(ITERATIONS);
+                // Reading the counter may allocate a few bytes itself, well below one per operation
+                long allocated = (Workload.allocatedBytes() - bytes) / ITERATIONS;
+                assertEquals(Workload.OP_NAMES[op] + " allocated in mode " + mode + ", pattern "
+                        + Workload.PATTERN_NAMES[pattern], 0, allocated);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * State shared by all {@link CarouselViewHolder carousels} of an adapter: one
+ * {@link RecyclerView.RecycledViewPool} used by every inner RecyclerView and the scroll position
+ * of every carousel, keyed by section, saved when its row is recycled.
+ * <p>
+ * The shared pool is sized so that a carousel scrolling in finds recycled holders for its first
+ * {@code initialItemCount} items, counted per view type of its adapter.
+ */
+@SuppressWarnings("unused")
+public class CarouselState {
+
+    // Default capacity of RecycledViewPool per view type
+    private static final int DEFAULT_POOL_SIZE = 5;
+
+    private final RecyclerView.RecycledViewPool mPool = new RecyclerView.RecycledViewPool();
+    private final int mInitialItemCount;
+    private final SparseIntArray mPositions = new SparseIntArray();
+    private final SparseIntArray mOffsets = new SparseIntArray();
+    private final SparseIntArray mPoolSizes = new SparseIntArray();
+    private final SparseIntArray mTypeCounts = new SparseIntArray();
+
+    /**
+     * Creates state sizing the shared pool for 4 items of each carousel
+     */
+    public CarouselState() {
+        this(4);
+    }
+
+    /**
+     * @param initialItemCount Number of items shown when a carousel scrolls in
+     */
+    public CarouselState(int initialItemCount) {
+        mInitialItemCount = initialItemCount;
+    }
+
+    /**
+     * @return Pool shared by all inner RecyclerViews
+     */
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mPool;
+    }
+
+    /**
+     * Saves scroll position of the carousel of {@code section}
+     * @param section The section
+     * @param position Adapter position of first visible item of the carousel
+     * @param offset Offset of the first visible item from the start of the carousel
+     */
+    public void saveScrollState(int section, int position, int offset) {
+        if (position <= 0 && offset == 0) {
+            clearScrollState(section);
+            return;
+        }
+        mPositions.put(section, position);
+        mOffsets.put(section, offset);
+    }
+
+    /**
+     * @return Saved first visible position of the carousel of {@code section}, 0 if none saved
+     */
+    public int getScrollPosition(int section) {
+        return mPositions.get(section);
+    }
+
+    /**
+     * @return Saved offset of first visible item of the carousel of {@code section}
+     */
+    public int getScrollOffset(int section) {
+        return mOffsets.get(section);
+    }
+
+    /**
+     * Forgets scroll position of the carousel of {@code section}, e.g. when its items change
+     */
+    public void clearScrollState(int section) {
+        mPositions.delete(section);
+        mOffsets.delete(section);
+    }
+
+    /**
+     * Forgets scroll positions of all carousels, e.g. when sections are inserted or removed
+     */
+    public void clearScrollStates() {
+        mPositions.clear();
+        mOffsets.clear();
+    }
+
+    /**
+     * Raises capacity of the shared pool for view types of first items of {@code adapter}. Holders
+     * of both the carousel scrolling out and the one scrolling in are kept.
+     * @param adapter Adapter of a carousel about to be shown
+     */
+    void ensurePoolSize(RecyclerView.Adapter<?> adapter) {
+        int count = Math.min(adapter.getItemCount(), mInitialItemCount);
+        mTypeCounts.clear();
+        for (int i = 0; i < count; i++) {
+            int viewType = adapter.getItemViewType(i);
+            mTypeCounts.put(viewType, mTypeCounts.get(viewType) + 1);
+        }
+        for (int i = 0, size = mTypeCounts.size(); i < size; i++) {
+            int viewType = mTypeCounts.keyAt(i);
+            int poolSize = 2 * mTypeCounts.valueAt(i);
+            if (poolSize > mPoolSizes.get(viewType, DEFAULT_POOL_SIZE)) {
+                mPoolSizes.put(viewType, poolSize);
+                mPool.setMaxRecycledViews(viewType, poolSize);
+            }
+        }
+    }
+
+}
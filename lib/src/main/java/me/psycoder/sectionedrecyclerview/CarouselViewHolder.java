@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+/**
+ * View holder of a row showing a section as a horizontal carousel. All carousels created with the
+ * same {@link CarouselState} share one {@link RecyclerView.RecycledViewPool}, and each carousel
+ * restores the scroll position its section had when its row was last recycled.
+ * <p>
+ * Call {@link #bindCarousel(int, RecyclerView.Adapter)} from {@link #bind(int, int, int) bind}
+ * with the adapter of items of the section.
+ */
+@SuppressWarnings("unused")
+public class CarouselViewHolder extends SectionedRecyclerViewAdapter.ViewHolder {
+
+    private final RecyclerView mRecyclerView;
+    private final LinearLayoutManager mLayoutManager;
+    private final CarouselState mState;
+    private int mCarouselSection = RecyclerView.NO_POSITION;
+
+    /**
+     * @param itemView View of the row
+     * @param recyclerView Inner RecyclerView inside {@code itemView}
+     * @param state State shared by all carousels of the adapter
+     */
+    public CarouselViewHolder(View itemView, RecyclerView recyclerView, CarouselState state) {
+        super(itemView);
+        mRecyclerView = recyclerView;
+        mState = state;
+        mLayoutManager = new LinearLayoutManager(itemView.getContext(), LinearLayoutManager.HORIZONTAL, false);
+        // Items go back to the shared pool when the row is recycled
+        mLayoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(mLayoutManager);
+        recyclerView.setRecycledViewPool(state.getRecycledViewPool());
+        recyclerView.setHasFixedSize(true);
+    }
+
+    public RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    /**
+     * Shows {@code adapter} in the carousel and scrolls it to the saved position of {@code section}
+     * @param section The section shown by the carousel
+     * @param adapter Adapter of items of the section
+     */
+    public void bindCarousel(int section, RecyclerView.Adapter<?> adapter) {
+        mCarouselSection = section;
+        mState.ensurePoolSize(adapter);
+        if (mRecyclerView.getAdapter() != adapter)
+            mRecyclerView.swapAdapter(adapter, false);
+        mLayoutManager.scrollToPositionWithOffset(mState.getScrollPosition(section), mState.getScrollOffset(section));
+    }
+
+    /**
+     * Saves scroll position of the carousel into the shared {@link CarouselState}
+     */
+    public void saveScrollState() {
+        if (mCarouselSection == RecyclerView.NO_POSITION)
+            return;
+        int position = mLayoutManager.findFirstVisibleItemPosition();
+        View first = position == RecyclerView.NO_POSITION ? null : mLayoutManager.findViewByPosition(position);
+        int offset = first == null ? 0 : first.getLeft() - mRecyclerView.getPaddingLeft();
+        mState.saveScrollState(mCarouselSection, Math.max(position, 0), offset);
+    }
+
+    @Override
+    public void onRecycled() {
+        saveScrollState();
+        mCarouselSection = RecyclerView.NO_POSITION;
+    }
+
+}
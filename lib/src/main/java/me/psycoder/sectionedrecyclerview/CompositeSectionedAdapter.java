@@ -0,0 +1,372 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SectionedRecyclerViewAdapter} whose sections are backed by independent child
+ * {@link RecyclerView.Adapter adapters}, one section per child. Notifications of a child are
+ * forwarded through the section-aware notify methods, so they are translated to adapter positions
+ * with the section index and only the changed rows are rebound.
+ * <p>
+ * View types of children are mapped to view types of this adapter. By default every child has its
+ * own namespace, so equal view types of two children never share view holders. If children
+ * create interchangeable view holders for equal view types, e.g. because they use the same
+ * layouts, pass {@code true} to {@link #CompositeSectionedAdapter(boolean)} so that holders are
+ * recycled across children.
+ * <p>
+ * Child view holders are wrapped in a {@link ChildViewHolder}. RecyclerView does not know about
+ * the child holder, so positions reported by it are not valid, use
+ * {@link ChildViewHolder#getSectionPosition()} instead. Sections have no header or footer.
+ */
+@SuppressWarnings("unused")
+public class CompositeSectionedAdapter extends SectionedRecyclerViewAdapter<CompositeSectionedAdapter.ChildViewHolder> {
+
+    private final boolean mShareViewTypes;
+    private final ArrayList<Child> mChildren = new ArrayList<Child>();
+    // View types of children mapped to view types of this adapter, shared by all children if
+    // view types are shared
+    private final SparseIntArray mSharedViewTypes;
+    // Adapter creating holders and child view type of every view type of this adapter. View types
+    // are never reused, RecyclerView may still pool holders of those of removed adapters
+    private final SparseArray<RecyclerView.Adapter<RecyclerView.ViewHolder>> mViewTypeAdapters
+            = new SparseArray<RecyclerView.Adapter<RecyclerView.ViewHolder>>();
+    private final SparseIntArray mChildViewTypes = new SparseIntArray();
+    private int mNextViewType;
+    private int mNextSectionId;
+    private RecyclerView mRecyclerView;
+
+    /**
+     * Creates an adapter giving every child its own namespace of view types
+     */
+    public CompositeSectionedAdapter() {
+        this(false);
+    }
+
+    /**
+     * @param shareViewTypes Whether children share view holders of equal view types
+     */
+    public CompositeSectionedAdapter(boolean shareViewTypes) {
+        mShareViewTypes = shareViewTypes;
+        mSharedViewTypes = shareViewTypes ? new SparseIntArray() : null;
+    }
+
+    /**
+     * @return Whether children share view holders of equal view types
+     */
+    public boolean isShareViewTypes() {
+        return mShareViewTypes;
+    }
+
+    /**
+     * Adds {@code adapter} as the last section
+     * @param adapter Child adapter
+     */
+    public void addAdapter(RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter) {
+        addAdapter(mChildren.size(), adapter);
+    }
+
+    /**
+     * Inserts {@code adapter} as section {@code section}, shifting following sections
+     * @param section Section of the child adapter
+     * @param adapter Child adapter
+     */
+    public void addAdapter(int section, RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter) {
+        if (isInBatch())
+            throw new IllegalStateException("Adapters cannot be added in a batch");
+        if (indexOf(adapter) != -1)
+            throw new IllegalArgumentException("Adapter is already added");
+        int positionStart = getSectionStart(section);
+        Child child = new Child(adapter, mNextSectionId++, mShareViewTypes ? mSharedViewTypes : new SparseIntArray());
+        mChildren.add(section, child);
+        updateSections(section);
+        adapter.registerAdapterDataObserver(child.mObserver);
+        if (mRecyclerView != null)
+            adapter.onAttachedToRecyclerView(mRecyclerView);
+        invalidateSectionIndex();
+        notifyItemRangeInserted(positionStart, getSectionSpan(section));
+    }
+
+    /**
+     * Removes {@code adapter} and its section
+     * @param adapter Child adapter
+     * @return Whether the adapter was added
+     */
+    public boolean removeAdapter(RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter) {
+        if (isInBatch())
+            throw new IllegalStateException("Adapters cannot be removed in a batch");
+        int section = indexOf(adapter);
+        if (section == -1)
+            return false;
+        int positionStart = getSectionStart(section);
+        int span = getSectionSpan(section);
+        Child child = mChildren.remove(section);
+        updateSections(section);
+        for (int viewType = 0; viewType < mNextViewType; viewType++) {
+            if (mViewTypeAdapters.get(viewType) == adapter) {
+                mViewTypeAdapters.delete(viewType);
+                // Shared view types keep their mapping, another child takes over creating holders
+                if (!mShareViewTypes)
+                    mChildViewTypes.delete(viewType);
+            }
+        }
+        adapter.unregisterAdapterDataObserver(child.mObserver);
+        if (mRecyclerView != null)
+            adapter.onDetachedFromRecyclerView(mRecyclerView);
+        invalidateSectionIndex();
+        notifyItemRangeRemoved(positionStart, span);
+        return true;
+    }
+
+    /**
+     * @param section The section
+     * @return Child adapter backing {@code section}
+     */
+    public RecyclerView.Adapter<? extends RecyclerView.ViewHolder> getAdapter(int section) {
+        return mChildren.get(section).mAdapter;
+    }
+
+    /**
+     * @return Section backed by {@code adapter}, or -1 if it is not added
+     */
+    public int indexOf(RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter) {
+        for (int i = 0, size = mChildren.size(); i < size; i++) {
+            if (mChildren.get(i).mAdapter == adapter)
+                return i;
+        }
+        return -1;
+    }
+
+    private void updateSections(int from) {
+        for (int i = from, size = mChildren.size(); i < size; i++)
+            mChildren.get(i).mSection = i;
+    }
+
+    @Override
+    public int getSectionCount() {
+        return mChildren.size();
+    }
+
+    /**
+     * Returns item count of the child adapter as of its last notification
+     * {@inheritDoc}
+     */
+    @Override
+    public int getItemCount(int section) {
+        return mChildren.get(section).mItemCount;
+    }
+
+    @Override
+    public int getItemViewType(int section, int sectionPosition, int adapterPosition) {
+        Child child = mChildren.get(section);
+        int childViewType = child.mAdapter.getItemViewType(sectionPosition);
+        int viewType = child.mViewTypes.get(childViewType, -1);
+        if (viewType == -1) {
+            viewType = mNextViewType++;
+            mViewTypeAdapters.put(viewType, child.mAdapter);
+            mChildViewTypes.put(viewType, childViewType);
+            child.mViewTypes.put(childViewType, viewType);
+        } else if (mShareViewTypes && mViewTypeAdapters.get(viewType) == null) {
+            // The adapter which created holders of this view type was removed
+            mViewTypeAdapters.put(viewType, child.mAdapter);
+        }
+        return viewType;
+    }
+
+    /**
+     * Returns id of the item in its child adapter combined with id of the section. Ids of child
+     * adapters are folded to 32 bits. Returns {@link RecyclerView#NO_ID} if the child adapter has
+     * no stable ids or has no id for the item.
+     * {@inheritDoc}
+     */
+    @Override
+    public long getItemId(int section, int sectionPosition) {
+        Child child = mChildren.get(section);
+        if (!child.mAdapter.hasStableIds())
+            return RecyclerView.NO_ID;
+        long id = child.mAdapter.getItemId(sectionPosition);
+        if (id == RecyclerView.NO_ID)
+            return RecyclerView.NO_ID;
+        return packItemId(child.mSectionId, (int) (id ^ (id >>> 32)));
+    }
+
+    /**
+     * Returns an id assigned when the child adapter was added, so ids stay stable when other
+     * adapters are added or removed
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSectionId(int section) {
+        return mChildren.get(section).mSectionId;
+    }
+
+    @Override
+    public ChildViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        RecyclerView.ViewHolder holder = mViewTypeAdapters.get(viewType)
+                .onCreateViewHolder(parent, mChildViewTypes.get(viewType));
+        return new ChildViewHolder(holder);
+    }
+
+    @Override
+    public void onBindViewHolder(ChildViewHolder holder, int section, int sectionPosition, int adapterPosition) {
+        holder.mBoundAdapter = mChildren.get(section).mAdapter;
+        holder.mBoundAdapter.onBindViewHolder(holder.mChild, sectionPosition);
+    }
+
+    @Override
+    public void onBindViewHolder(ChildViewHolder holder, int section, int sectionPosition, int adapterPosition, List<Object> payloads) {
+        holder.mBoundAdapter = mChildren.get(section).mAdapter;
+        holder.mBoundAdapter.onBindViewHolder(holder.mChild, sectionPosition, payloads);
+    }
+
+    @Override
+    public void onViewRecycled(ChildViewHolder holder) {
+        super.onViewRecycled(holder);
+        if (holder.mBoundAdapter != null)
+            holder.mBoundAdapter.onViewRecycled(holder.mChild);
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(ChildViewHolder holder) {
+        return holder.mBoundAdapter != null && holder.mBoundAdapter.onFailedToRecycleView(holder.mChild);
+    }
+
+    @Override
+    public void onViewAttachedToWindow(ChildViewHolder holder) {
+        if (holder.mBoundAdapter != null)
+            holder.mBoundAdapter.onViewAttachedToWindow(holder.mChild);
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(ChildViewHolder holder) {
+        if (holder.mBoundAdapter != null)
+            holder.mBoundAdapter.onViewDetachedFromWindow(holder.mChild);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        mRecyclerView = recyclerView;
+        for (int i = 0, size = mChildren.size(); i < size; i++)
+            mChildren.get(i).mAdapter.onAttachedToRecyclerView(recyclerView);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        mRecyclerView = null;
+        for (int i = 0, size = mChildren.size(); i < size; i++)
+            mChildren.get(i).mAdapter.onDetachedFromRecyclerView(recyclerView);
+    }
+
+    /**
+     * View holder wrapping a view holder created by a child adapter
+     */
+    public static final class ChildViewHolder extends SectionedRecyclerViewAdapter.ViewHolder {
+
+        private final RecyclerView.ViewHolder mChild;
+        private RecyclerView.Adapter<RecyclerView.ViewHolder> mBoundAdapter;
+
+        ChildViewHolder(RecyclerView.ViewHolder child) {
+            super(child.itemView);
+            mChild = child;
+        }
+
+        /**
+         * @return View holder created by the child adapter
+         */
+        public RecyclerView.ViewHolder getChildViewHolder() {
+            return mChild;
+        }
+
+    }
+
+    /**
+     * Child adapter with the section it backs and its item count as of its last notification
+     */
+    private final class Child {
+
+        final RecyclerView.Adapter<RecyclerView.ViewHolder> mAdapter;
+        final int mSectionId;
+        final SparseIntArray mViewTypes;
+        final RecyclerView.AdapterDataObserver mObserver;
+        int mSection;
+        int mItemCount;
+
+        @SuppressWarnings("unchecked")
+        Child(RecyclerView.Adapter<? extends RecyclerView.ViewHolder> adapter, int sectionId, SparseIntArray viewTypes) {
+            // Holders passed back to the adapter are only those it created
+            mAdapter = (RecyclerView.Adapter<RecyclerView.ViewHolder>) adapter;
+            mSectionId = sectionId;
+            mViewTypes = viewTypes;
+            mItemCount = adapter.getItemCount();
+            mObserver = new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onChanged() {
+                    // Rows are kept and rebound instead of resetting the whole adapter
+                    int oldCount = mItemCount;
+                    mItemCount = mAdapter.getItemCount();
+                    if (mItemCount < oldCount)
+                        notifyItemRangeRemoved(mSection, mItemCount, oldCount - mItemCount);
+                    else if (mItemCount > oldCount)
+                        notifyItemRangeInserted(mSection, oldCount, mItemCount - oldCount);
+                    notifyItemRangeChanged(mSection, 0, Math.min(oldCount, mItemCount));
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    notifyItemRangeChanged(mSection, positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+                    notifyItemRangeChanged(mSection, positionStart, itemCount, payload);
+                }
+
+                @Override
+                public void onItemRangeInserted(int positionStart, int itemCount) {
+                    mItemCount += itemCount;
+                    notifyItemRangeInserted(mSection, positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeRemoved(int positionStart, int itemCount) {
+                    mItemCount -= itemCount;
+                    notifyItemRangeRemoved(mSection, positionStart, itemCount);
+                }
+
+                @Override
+                public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                    if (itemCount == 1) {
+                        notifyItemMoved(mSection, fromPosition, toPosition);
+                        return;
+                    }
+                    notifyItemRangeRemoved(mSection, fromPosition, itemCount);
+                    notifyItemRangeInserted(mSection, toPosition, itemCount);
+                }
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LongSparseArray;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Windowed view of a {@link PagedSectionSource} for a {@link SectionedRecyclerViewAdapter}.
+ * Section sizes are read once from the source, items are loaded in pages on a background executor
+ * when they or a neighbouring page are read, and least recently read pages are evicted once more
+ * than {@code maxPages} pages are held. Items which are not loaded yet are returned as
+ * {@code null} and should be bound as placeholders, they are rebound through
+ * {@link SectionedRecyclerViewAdapter#notifyItemRangeChanged(int, int, int)} when their page arrives.
+ * <p>
+ * The adapter should read its sections from this list:
+ * <pre>
+ * public int getSectionCount() {
+ *     return mList.getSectionCount();
+ * }
+ *
+ * public int getItemCount(int section) {
+ *     return mList.getItemCount(section);
+ * }
+ *
+ * public void onBindViewHolder(VH holder, int section, int sectionPosition, int adapterPosition) {
+ *     holder.bind(mList.getItem(section, sectionPosition));
+ * }
+ * </pre>
+ * All methods must be called on main thread.
+ * @param <T> Type of item in a section
+ */
+public class PagedSectionList<T> {
+
+    private static ExecutorService sLoadExecutor;
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final PagedSectionSource<T> mSource;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final int mPageSize;
+    private final int mMaxPages;
+    // Loaded and loading pages keyed by section in high and page number in low 32 bits
+    private final LongSparseArray<Page<T>> mPages = new LongSparseArray<Page<T>>();
+    private int mLoadedPageCount;
+    private long mClock;
+    private int[] mItemCounts;
+    private int mGeneration;
+
+    /**
+     * @param adapter Adapter notified when pages are loaded
+     * @param source Source of sections and items
+     * @param pageSize Number of items loaded at once
+     * @param maxPages Number of loaded pages held before least recently read ones are evicted
+     */
+    public PagedSectionList(SectionedRecyclerViewAdapter<?> adapter, PagedSectionSource<T> source,
+                            int pageSize, int maxPages) {
+        this(adapter, source, pageSize, maxPages, getDefaultExecutor());
+    }
+
+    public PagedSectionList(SectionedRecyclerViewAdapter<?> adapter, PagedSectionSource<T> source,
+                            int pageSize, int maxPages, Executor executor) {
+        if (pageSize <= 0)
+            throw new IllegalArgumentException("Page size must be positive");
+        // Read page and both of its neighbours must fit
+        if (maxPages < 3)
+            throw new IllegalArgumentException("At least 3 pages must be held");
+        mAdapter = adapter;
+        mSource = source;
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+        mExecutor = executor;
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (sLoadExecutor == null)
+            sLoadExecutor = Executors.newSingleThreadExecutor();
+        return sLoadExecutor;
+    }
+
+    public int getSectionCount() {
+        return getItemCounts().length;
+    }
+
+    public int getItemCount(int section) {
+        return getItemCounts()[section];
+    }
+
+    private int[] getItemCounts() {
+        if (mItemCounts == null) {
+            int[] itemCounts = new int[mSource.getSectionCount()];
+            for (int i = 0; i < itemCounts.length; i++)
+                itemCounts[i] = mSource.getItemCount(i);
+            mItemCounts = itemCounts;
+        }
+        return mItemCounts;
+    }
+
+    /**
+     * Returns the item if its page is loaded. Otherwise loading of the page is started. Pages
+     * next to the page of the item are loaded too, so that scrolling into them finds them loaded.
+     * @param section The section
+     * @param sectionPosition Position of item in the section
+     * @return The item or {@code null} if it is not loaded yet
+     */
+    public T getItem(int section, int sectionPosition) {
+        int page = sectionPosition / mPageSize;
+        Page<T> current = mPages.get(key(section, page));
+        if (current == null || current.items == null) {
+            load(section, page);
+        } else {
+            current.lastRead = ++mClock;
+        }
+        // Neighbouring pages, continuing into adjacent sections at section boundaries
+        if (page > 0)
+            load(section, page - 1);
+        else if (section > 0 && getItemCount(section - 1) > 0)
+            load(section - 1, (getItemCount(section - 1) - 1) / mPageSize);
+        if ((page + 1) * mPageSize < getItemCount(section))
+            load(section, page + 1);
+        else if (section + 1 < getSectionCount() && getItemCount(section + 1) > 0)
+            load(section + 1, 0);
+
+        if (current == null || current.items == null)
+            return null;
+        int index = sectionPosition - page * mPageSize;
+        return index < current.items.size() ? current.items.get(index) : null;
+    }
+
+    /**
+     * @return Whether the item at {@code sectionPosition} of {@code section} is loaded
+     */
+    public boolean isLoaded(int section, int sectionPosition) {
+        Page<T> page = mPages.get(key(section, sectionPosition / mPageSize));
+        return page != null && page.items != null;
+    }
+
+    /**
+     * Drops all loaded pages and queries section sizes again, then notifies the adapter that the
+     * data set changed. Pages being loaded are ignored when they arrive.
+     */
+    public void refresh() {
+        mGeneration++;
+        mPages.clear();
+        mLoadedPageCount = 0;
+        mItemCounts = null;
+        mAdapter.invalidateSectionIndex();
+        mAdapter.notifyDataSetChanged();
+    }
+
+    private static long key(int section, int page) {
+        return ((long) section << 32) | page;
+    }
+
+    /**
+     * Starts loading {@code page} of {@code section} if it is neither loaded nor being loaded
+     */
+    private void load(final int section, final int page) {
+        final long key = key(section, page);
+        if (mPages.get(key) != null)
+            return;
+        final Page<T> pending = new Page<T>();
+        mPages.put(key, pending);
+        final int generation = mGeneration;
+        final int start = page * mPageSize;
+        final int count = Math.min(mPageSize, getItemCount(section) - start);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<T> items = mSource.loadPage(section, start, count);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration || mPages.get(key) != pending)
+                            return;
+                        if (items == null) {
+                            mPages.remove(key);
+                            return;
+                        }
+                        pending.items = items;
+                        pending.lastRead = ++mClock;
+                        if (++mLoadedPageCount > mMaxPages)
+                            evictLeastRecentlyRead();
+                        mAdapter.notifyItemRangeChanged(section, start, Math.min(count, items.size()));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Removes the loaded page read least recently. Pages are few, a linear scan is cheaper than
+     * keeping them ordered on every read
+     */
+    private void evictLeastRecentlyRead() {
+        int oldest = -1;
+        long oldestRead = Long.MAX_VALUE;
+        for (int i = 0, size = mPages.size(); i < size; i++) {
+            Page<T> page = mPages.valueAt(i);
+            if (page.items != null && page.lastRead < oldestRead) {
+                oldest = i;
+                oldestRead = page.lastRead;
+            }
+        }
+        if (oldest >= 0) {
+            mPages.removeAt(oldest);
+            mLoadedPageCount--;
+        }
+    }
+
+    private static final class Page<T> {
+        // null while the page is being loaded
+        List<T> items;
+        long lastRead;
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import java.util.List;
+
+/**
+ * Source of sectioned data too large to be held in memory, read by {@link PagedSectionList}.
+ * Section sizes are queried up front while items are loaded page by page on a background thread.
+ * @param <T> Type of item in a section
+ */
+public abstract class PagedSectionSource<T> {
+
+    /**
+     * Called on main thread, should be cheap
+     * @return Number of sections
+     */
+    public abstract int getSectionCount();
+
+    /**
+     * Called on main thread for every section when counts are loaded, should be cheap
+     * @param section The section
+     * @return Number of items in {@code section}
+     */
+    public abstract int getItemCount(int section);
+
+    /**
+     * Loads items of a page. Called on a background thread
+     * @param section The section
+     * @param start Section position of first item of the page
+     * @param count Number of items to load
+     * @return Loaded items, or {@code null} if they could not be loaded. The page is requested
+     * again when it is read next time
+     */
+    public abstract List<T> loadPage(int section, int start, int count);
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+
+/**
+ * Vertical rail of {@link SectionedRecyclerViewAdapter#getSectionTitle(int) section titles}, e.g.
+ * an A-Z index, which scrolls a RecyclerView to the section under the finger. Place it over the
+ * right edge of the RecyclerView and call {@link #setRecyclerView(RecyclerView, SectionedRecyclerViewAdapter)}.
+ * Scrubbing maps the touched section to its first row through
+ * {@link SectionedRecyclerViewAdapter#getPositionForSection(int)} and scrolls only when the
+ * section changes. Neither scrubbing nor drawing allocates.
+ */
+@SuppressWarnings("unused")
+public class SectionFastScroller extends View {
+
+    private RecyclerView mRecyclerView;
+    private SectionedRecyclerViewAdapter<?> mAdapter;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private int mScrubbedSection = RecyclerView.NO_POSITION;
+
+    public SectionFastScroller(Context context) {
+        this(context, null);
+    }
+
+    public SectionFastScroller(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SectionFastScroller(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mPaint.setTextAlign(Paint.Align.CENTER);
+        mPaint.setTextSize(12 * getResources().getDisplayMetrics().scaledDensity);
+        mPaint.setColor(0xff757575);
+    }
+
+    /**
+     * @param recyclerView RecyclerView scrolled by this scroller
+     * @param adapter Adapter of the RecyclerView providing section titles and positions
+     */
+    public void setRecyclerView(RecyclerView recyclerView, SectionedRecyclerViewAdapter<?> adapter) {
+        mRecyclerView = recyclerView;
+        mAdapter = adapter;
+        invalidate();
+    }
+
+    public void setTextColor(int color) {
+        mPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * @param size Text size of titles in pixels
+     */
+    public void setTextSize(float size) {
+        mPaint.setTextSize(size);
+        invalidate();
+    }
+
+    /**
+     * @return Section last scrolled to by scrubbing or {@link RecyclerView#NO_POSITION} if the
+     * rail is not being touched
+     */
+    public int getScrubbedSection() {
+        return mScrubbedSection;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mAdapter == null)
+            return;
+        CharSequence[] titles = mAdapter.getSections();
+        int sectionCount = titles.length;
+        int top = getPaddingTop();
+        int height = getHeight() - top - getPaddingBottom();
+        if (sectionCount == 0 || height <= 0)
+            return;
+        float rowHeight = (float) height / sectionCount;
+        float textHeight = mPaint.descent() - mPaint.ascent();
+        // Titles are skipped evenly when they do not fit
+        int step = Math.max(1, (int) Math.ceil(textHeight / rowHeight));
+        float x = getPaddingLeft() + (getWidth() - getPaddingLeft() - getPaddingRight()) / 2f;
+        float baseline = -(mPaint.ascent() + mPaint.descent()) / 2f;
+        for (int i = 0; i < sectionCount; i += step) {
+            CharSequence title = titles[i];
+            if (title != null)
+                canvas.drawText(title, 0, title.length(), x, top + (i + 0.5f) * rowHeight + baseline, mPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mAdapter == null)
+            return false;
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressed(true);
+                ViewParent parent = getParent();
+                if (parent != null)
+                    parent.requestDisallowInterceptTouchEvent(true);
+                scrub(event.getY());
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                scrub(event.getY());
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                setPressed(false);
+                mScrubbedSection = RecyclerView.NO_POSITION;
+                return true;
+        }
+        return super.onTouchEvent(event);
+    }
+
+    private void scrub(float y) {
+        int sectionCount = mAdapter.getSectionCount();
+        int height = getHeight() - getPaddingTop() - getPaddingBottom();
+        if (sectionCount == 0 || height <= 0)
+            return;
+        int section = (int) ((y - getPaddingTop()) * sectionCount / height);
+        section = Math.max(0, Math.min(section, sectionCount - 1));
+        if (section == mScrubbedSection)
+            return;
+        mScrubbedSection = section;
+        int position = mAdapter.getPositionForSection(section);
+        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager)
+            ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, 0);
+        else
+            mRecyclerView.scrollToPosition(position);
+    }
+
+}
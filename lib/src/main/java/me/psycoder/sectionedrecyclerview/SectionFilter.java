@@ -0,0 +1,374 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Filtered view of sectioned source data for a {@link SectionedRecyclerViewAdapter}. Items are
+ * matched against a query on a background executor and the result is kept per source section as
+ * an array of matching source positions. Sections without matches are hidden. If a query only
+ * extends the previous one, e.g. a character was typed, only items matching the previous query
+ * are matched again.
+ * <p>
+ * When a result arrives, matches of every section are compared with the previous ones and only
+ * the difference is notified as removed and inserted rows, merged into ranges and dispatched
+ * once the whole result is applied. Section observers of the adapter are told of sections hidden
+ * or shown and of items removed or inserted in sections which stay visible, so that results they
+ * keep for other sections survive. The adapter should read its sections from this filter:
+ * <pre>
+ * public int getSectionCount() {
+ *     return mFilter.getSectionCount();
+ * }
+ *
+ * public int getItemCount(int section) {
+ *     return mFilter.getItemCount(section);
+ * }
+ *
+ * public void onBindViewHolder(VH holder, int section, int sectionPosition, int adapterPosition) {
+ *     holder.bind(mData.get(mFilter.getSourceSection(section))
+ *             .get(mFilter.getSourcePosition(section, sectionPosition)));
+ * }
+ * </pre>
+ * With an empty query, sections and items of the source are shown as they are. Call
+ * {@link #refilter()} if the source changes while a query is applied. Collapsed state of sections
+ * is not moved when sections are hidden or shown. All methods must be called on main thread,
+ * outside of a {@link SectionedRecyclerViewAdapter#beginBatch() batch}.
+ */
+@SuppressWarnings("unused")
+public abstract class SectionFilter {
+
+    private static ExecutorService sFilterExecutor;
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    // Incremented by every filter request, results of older requests are dropped
+    private volatile int mGeneration;
+
+    // Applied result, only valid while filtered, otherwise the source is read directly
+    private boolean mFiltered;
+    private String mQuery = "";
+    private int[] mItemCounts;
+    // Matching source positions of every source section, null if all items match
+    private int[][] mPositions;
+    // Source sections with matches, in order
+    private int[] mVisibleSections;
+    private int mVisibleSectionCount;
+
+    /**
+     * @param adapter Adapter notified of changes of the filtered sections
+     */
+    public SectionFilter(SectionedRecyclerViewAdapter<?> adapter) {
+        this(adapter, getDefaultExecutor());
+    }
+
+    public SectionFilter(SectionedRecyclerViewAdapter<?> adapter, Executor executor) {
+        mAdapter = adapter;
+        mExecutor = executor;
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (sFilterExecutor == null)
+            sFilterExecutor = Executors.newSingleThreadExecutor();
+        return sFilterExecutor;
+    }
+
+    /**
+     * @return Number of sections of the source data
+     */
+    public abstract int getSourceSectionCount();
+
+    /**
+     * @return Number of items of {@code sourceSection} in the source data
+     */
+    public abstract int getSourceItemCount(int sourceSection);
+
+    /**
+     * Whether an item matches {@code query}. Called on the background executor, so it must only
+     * read data which is safe to read from there.
+     * @param sourceSection Section of the item in the source
+     * @param sourcePosition Position of the item in the source section
+     * @param query Non-empty query
+     * @return Whether the item is shown
+     */
+    public abstract boolean matches(int sourceSection, int sourcePosition, String query);
+
+    /**
+     * Whether every item matching {@code query} also matches {@code previousQuery}, so that only
+     * items matching {@code previousQuery} need to be matched. By default it returns whether
+     * {@code query} starts with {@code previousQuery}.
+     */
+    public boolean isNarrowing(String previousQuery, String query) {
+        return query.startsWith(previousQuery);
+    }
+
+    /**
+     * @return Query of the result shown, empty if not filtered
+     */
+    public String getQuery() {
+        return mQuery;
+    }
+
+    public int getSectionCount() {
+        return mFiltered ? mVisibleSectionCount : getSourceSectionCount();
+    }
+
+    public int getItemCount(int section) {
+        if (!mFiltered)
+            return getSourceItemCount(section);
+        int sourceSection = mVisibleSections[section];
+        int[] positions = mPositions[sourceSection];
+        return positions != null ? positions.length : mItemCounts[sourceSection];
+    }
+
+    /**
+     * @return Section of the source shown as {@code section}
+     */
+    public int getSourceSection(int section) {
+        return mFiltered ? mVisibleSections[section] : section;
+    }
+
+    /**
+     * @return Position in the source section of item at {@code sectionPosition} of {@code section}
+     */
+    public int getSourcePosition(int section, int sectionPosition) {
+        if (!mFiltered)
+            return sectionPosition;
+        int[] positions = mPositions[mVisibleSections[section]];
+        return positions != null ? positions[sectionPosition] : sectionPosition;
+    }
+
+    /**
+     * Starts filtering the source with {@code query}, the result is shown when it is ready.
+     * Results of earlier calls which are not shown yet are dropped.
+     * @param query Query, {@code null} or empty to show all items
+     */
+    public void filter(CharSequence query) {
+        filter(query == null ? "" : query.toString(), true);
+    }
+
+    /**
+     * Filters the source again with the current query, e.g. after the source changed
+     */
+    public void refilter() {
+        filter(mQuery, false);
+    }
+
+    private void filter(final String query, boolean narrow) {
+        final int generation = ++mGeneration;
+        int sectionCount = getSourceSectionCount();
+        final int[] itemCounts = new int[sectionCount];
+        for (int i = 0; i < sectionCount; i++)
+            itemCounts[i] = getSourceItemCount(i);
+        // Arrays of the applied result are replaced, never modified, so the worker may read them
+        final int[][] base = narrow && mFiltered && !query.isEmpty() && isNarrowing(mQuery, query)
+                && Arrays.equals(itemCounts, mItemCounts) ? mPositions.clone() : null;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int[][] positions = match(query, itemCounts, base, generation);
+                if (positions == null)
+                    return;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mGeneration)
+                            apply(query, itemCounts, positions);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Matches items of all sections, only those in {@code base} if it is given
+     * @return Matching source positions of every section, or {@code null} if a newer request was
+     * made meanwhile
+     */
+    private int[][] match(String query, int[] itemCounts, int[][] base, int generation) {
+        int[][] positions = new int[itemCounts.length][];
+        if (query.isEmpty())
+            return positions;
+        for (int section = 0; section < itemCounts.length; section++) {
+            if (generation != mGeneration)
+                return null;
+            int[] candidates = base != null ? base[section] : null;
+            int candidateCount = candidates != null ? candidates.length : itemCounts[section];
+            int[] matches = new int[candidateCount];
+            int count = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                int position = candidates != null ? candidates[i] : i;
+                if (matches(section, position, query))
+                    matches[count++] = position;
+            }
+            positions[section] = count == candidateCount ? matches : Arrays.copyOf(matches, count);
+        }
+        return positions;
+    }
+
+    /**
+     * Replaces the shown result, walking sections with a running adapter offset and recording
+     * the difference against it, then notifies the adapter once the whole result is in place
+     */
+    private void apply(String query, int[] itemCounts, int[][] positions) {
+        int sectionCount = itemCounts.length;
+        // Source sections changed while filtered, the previous result can't be diffed against
+        boolean reset = false;
+        if (!mFiltered || mItemCounts.length != sectionCount) {
+            reset = mFiltered;
+            // Start from the unfiltered source of the same shape
+            mItemCounts = itemCounts;
+            mPositions = new int[sectionCount][];
+            mVisibleSections = new int[sectionCount];
+            for (int i = 0; i < sectionCount; i++)
+                mVisibleSections[i] = i;
+            mVisibleSectionCount = sectionCount;
+            mFiltered = true;
+        }
+        int[] oldItemCounts = mItemCounts;
+        mItemCounts = oldItemCounts.clone();
+        mPositions = mPositions.clone();
+        UpdateCoalescer updates = new UpdateCoalescer();
+        SectionedRecyclerViewAdapter.SectionDataObserver observers = mAdapter.getSectionObservers();
+        // Rows before section are already in their new state, rows after it still in the old one.
+        // Collapsed state stays with the index, so old rows of a section are those of oldSection
+        int section = 0, oldSection = 0, offset = 0;
+        for (int sourceSection = 0; sourceSection < sectionCount; sourceSection++) {
+            int[] oldPositions = mPositions[sourceSection];
+            int[] newPositions = positions[sourceSection];
+            int oldCount = oldPositions != null ? oldPositions.length : oldItemCounts[sourceSection];
+            int newCount = newPositions != null ? newPositions.length : itemCounts[sourceSection];
+            boolean wasVisible = oldPositions == null || oldCount > 0;
+            boolean visible = newPositions == null || newCount > 0;
+            if (wasVisible && !visible) {
+                updates.remove(offset, getSpan(section, oldSection, oldCount));
+                observers.onSectionRangeRemoved(section, 1);
+                setPositions(sourceSection, newPositions, itemCounts[sourceSection]);
+                System.arraycopy(mVisibleSections, section + 1, mVisibleSections, section, mVisibleSectionCount - section - 1);
+                mVisibleSectionCount--;
+                oldSection++;
+            } else if (!wasVisible && visible) {
+                setPositions(sourceSection, newPositions, itemCounts[sourceSection]);
+                System.arraycopy(mVisibleSections, section, mVisibleSections, section + 1, mVisibleSectionCount - section);
+                mVisibleSections[section] = sourceSection;
+                mVisibleSectionCount++;
+                int span = getSpan(section, section, newCount);
+                updates.insert(offset, span);
+                observers.onSectionRangeInserted(section, 1);
+                offset += span;
+                section++;
+            } else if (visible) {
+                setPositions(sourceSection, newPositions, itemCounts[sourceSection]);
+                int itemStart = offset + (mAdapter.hasHeader(section) ? 1 : 0);
+                int footer = mAdapter.hasFooter(section) ? 1 : 0;
+                boolean wasExpanded = mAdapter.isSectionExpanded(oldSection);
+                boolean expanded = mAdapter.isSectionExpanded(section);
+                // Items of collapsed sections are recorded only for observers
+                recordDifference(wasExpanded && expanded ? updates : null, observers, section, itemStart,
+                        oldPositions, oldCount, newPositions, newCount);
+                if (!wasExpanded || !expanded) {
+                    // Only the header of a collapsed section is shown
+                    if (wasExpanded)
+                        updates.remove(itemStart, oldCount + footer);
+                    if (expanded)
+                        updates.insert(itemStart, newCount + footer);
+                }
+                offset += getSpan(section, section, newCount);
+                section++;
+                oldSection++;
+            } else {
+                setPositions(sourceSection, newPositions, itemCounts[sourceSection]);
+            }
+        }
+        mQuery = query;
+        // Without a query the source is read directly again
+        if (query.isEmpty())
+            mFiltered = false;
+        if (reset)
+            mAdapter.notifyDataSetChanged();
+        else
+            mAdapter.dispatchUpdates(updates);
+    }
+
+    /**
+     * @return Rows of the source section shown as {@code section} with {@code itemCount} items,
+     * collapsed if {@code collapsedSection} is
+     */
+    private int getSpan(int section, int collapsedSection, int itemCount) {
+        int span = mAdapter.hasHeader(section) ? 1 : 0;
+        if (mAdapter.isSectionExpanded(collapsedSection))
+            span += itemCount + (mAdapter.hasFooter(section) ? 1 : 0);
+        return span;
+    }
+
+    private void setPositions(int sourceSection, int[] positions, int itemCount) {
+        mPositions[sourceSection] = positions;
+        mItemCounts[sourceSection] = itemCount;
+    }
+
+    /**
+     * Walks old and new matching positions of a section, both ascending, and records runs of
+     * removed and inserted items, telling section observers of each run
+     * @param updates Coalescer of rows, {@code null} if items of the section are not shown
+     * @param itemStart Adapter position of the first item of the section
+     */
+    private static void recordDifference(UpdateCoalescer updates, SectionedRecyclerViewAdapter.SectionDataObserver observers,
+                                         int section, int itemStart, int[] oldPositions, int oldCount,
+                                         int[] newPositions, int newCount) {
+        int i = 0, j = 0, sectionPosition = 0;
+        while (i < oldCount || j < newCount) {
+            int oldPosition = getPosition(oldPositions, oldCount, i);
+            int newPosition = getPosition(newPositions, newCount, j);
+            if (oldPosition == newPosition) {
+                i++;
+                j++;
+                sectionPosition++;
+            } else if (oldPosition < newPosition) {
+                int run = 0;
+                while (getPosition(oldPositions, oldCount, i + run) < newPosition)
+                    run++;
+                if (updates != null)
+                    updates.remove(itemStart + sectionPosition, run);
+                observers.onItemRangeRemoved(section, sectionPosition, run);
+                i += run;
+            } else {
+                int run = 0;
+                while (getPosition(newPositions, newCount, j + run) < oldPosition)
+                    run++;
+                if (updates != null)
+                    updates.insert(itemStart + sectionPosition, run);
+                observers.onItemRangeInserted(section, sectionPosition, run);
+                sectionPosition += run;
+                j += run;
+            }
+        }
+    }
+
+    /**
+     * @return Source position of match {@code index}, or {@link Integer#MAX_VALUE} past the last
+     */
+    private static int getPosition(int[] positions, int count, int index) {
+        return index < count ? (positions != null ? positions[index] : index) : Integer.MAX_VALUE;
+    }
+
+}
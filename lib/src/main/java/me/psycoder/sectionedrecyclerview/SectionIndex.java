@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Cached cumulative offsets of sections used by {@link SectionedRecyclerViewAdapter} to map
+ * positions without walking every section. Offsets are kept in a Fenwick tree keyed by section
+ * so a change in row count of one section is applied in O(log sections) without a rebuild.
+ * {@code mTree[i]} holds the sum of row counts, including headers and footers, of sections
+ * {@code (i - lowestOneBit(i), i]}.
+ */
+final class SectionIndex {
+
+    private int[] mTree = new int[1];
+    private int mSectionCount;
+    private int mItemCount;
+    private int mHighestStep;
+    private boolean mValid;
+
+    boolean isValid() {
+        return mValid;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Rebuilds the offsets by querying number of rows of every section of the adapter
+     * @param adapter Adapter whose sections are indexed
+     */
+    void build(SectionedRecyclerViewAdapter<?> adapter) {
+        int sectionCount = adapter.getSectionCount();
+        if (mTree.length < sectionCount + 1)
+            mTree = new int[sectionCount + 1];
+        int itemCount = 0;
+        for (int i = 1; i <= sectionCount; i++) {
+            int count = adapter.getSectionSpan(i - 1);
+            mTree[i] = count;
+            itemCount += count;
+        }
+        buildTree(sectionCount, itemCount);
+    }
+
+    /**
+     * Rebuilds the offsets from known row counts of sections, without querying the adapter
+     * @param sectionSpans Number of rows of every section, including headers and footers
+     */
+    void build(int[] sectionSpans) {
+        int sectionCount = sectionSpans.length;
+        if (mTree.length < sectionCount + 1)
+            mTree = new int[sectionCount + 1];
+        int itemCount = 0;
+        for (int i = 1; i <= sectionCount; i++) {
+            mTree[i] = sectionSpans[i - 1];
+            itemCount += sectionSpans[i - 1];
+        }
+        buildTree(sectionCount, itemCount);
+    }
+
+    /**
+     * Copies the offsets of {@code other}, e.g. of a {@link SectionSnapshot} built in background
+     * @param other A valid index
+     */
+    void set(SectionIndex other) {
+        int sectionCount = other.mSectionCount;
+        if (mTree.length < sectionCount + 1)
+            mTree = new int[sectionCount + 1];
+        System.arraycopy(other.mTree, 0, mTree, 0, sectionCount + 1);
+        mSectionCount = sectionCount;
+        mItemCount = other.mItemCount;
+        mHighestStep = other.mHighestStep;
+        mValid = true;
+    }
+
+    private void buildTree(int sectionCount, int itemCount) {
+        // Push partial sums to parents, builds the tree in O(sections)
+        for (int i = 1; i <= sectionCount; i++) {
+            int parent = i + (i & -i);
+            if (parent <= sectionCount)
+                mTree[parent] += mTree[i];
+        }
+        mSectionCount = sectionCount;
+        mItemCount = itemCount;
+        mHighestStep = Integer.highestOneBit(sectionCount);
+        mValid = true;
+    }
+
+    /**
+     * Adds {@code delta} to row count of {@code section}
+     * @param section Section whose row count changed
+     * @param delta Number of rows inserted, negative if removed
+     */
+    void update(int section, int delta) {
+        for (int i = section + 1; i <= mSectionCount; i += i & -i)
+            mTree[i] += delta;
+        mItemCount += delta;
+    }
+
+    int getSectionCount() {
+        return mSectionCount;
+    }
+
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * @param section Section number, may be equal to section count
+     * @return Adapter position of first item of {@code section}
+     */
+    int getSectionStart(int section) {
+        int start = 0;
+        for (int i = section; i > 0; i -= i & -i)
+            start += mTree[i];
+        return start;
+    }
+
+    /**
+     * Finds the section containing {@code adapterPosition} by descending the tree
+     * @param adapterPosition The absolute position of item
+     * @return Section of the item or {@link RecyclerView#NO_POSITION} if out of bounds
+     */
+    int getSection(int adapterPosition) {
+        if (adapterPosition < 0 || adapterPosition >= mItemCount)
+            return RecyclerView.NO_POSITION;
+        // Count sections which end at or before adapterPosition; empty sections end where they
+        // start and are skipped this way
+        int section = 0, remaining = adapterPosition;
+        for (int step = mHighestStep; step > 0; step >>= 1) {
+            int next = section + step;
+            if (next <= mSectionCount && mTree[next] <= remaining) {
+                section = next;
+                remaining -= mTree[next];
+            }
+        }
+        return section;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.util.SparseArray;
+
+/**
+ * Least recently used cache of per-item values keyed by section and section position. Entries of
+ * a section are held in an array indexed by section position, so lookups don't box keys and
+ * entries from a position to the end of a section are dropped without visiting other sections.
+ * Entries are linked in order of use and the least recently used are evicted once the total size,
+ * in units of {@link #sizeOf(int, int, Object)}, exceeds the maximum size. Not thread safe.
+ * @param <T> Type of the cached values
+ */
+abstract class SectionItemCache<T> {
+
+    private final int mMaxSize;
+    private int mSize;
+    // Entries of every section indexed by section position, null where nothing is cached
+    private final SparseArray<Entry[]> mSections = new SparseArray<Entry[]>();
+    // Most and least recently used entries
+    private Entry mHead;
+    private Entry mTail;
+
+    SectionItemCache(int maxSize) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize <= 0");
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return Size of {@code value} in units of the maximum size
+     */
+    abstract int sizeOf(int section, int sectionPosition, T value);
+
+    /**
+     * @return Cached value of the item, marked as most recently used, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    T get(int section, int sectionPosition) {
+        Entry entry = find(section, sectionPosition);
+        if (entry == null)
+            return null;
+        if (entry != mHead) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+        return (T) entry.value;
+    }
+
+    /**
+     * Caches {@code value} of the item, replacing the previous one, and evicts least recently
+     * used values until the cache fits its maximum size
+     */
+    void put(int section, int sectionPosition, T value) {
+        Entry[] entries = mSections.get(section);
+        if (entries == null || entries.length <= sectionPosition) {
+            Entry[] grown = new Entry[Math.max(sectionPosition + 1, entries == null ? 8 : entries.length * 2)];
+            if (entries != null)
+                System.arraycopy(entries, 0, grown, 0, entries.length);
+            entries = grown;
+            mSections.put(section, entries);
+        }
+        if (entries[sectionPosition] != null)
+            removeEntry(entries, entries[sectionPosition]);
+        Entry entry = new Entry(section, sectionPosition, value, sizeOf(section, sectionPosition, value));
+        entries[sectionPosition] = entry;
+        linkFirst(entry);
+        mSize += entry.size;
+        while (mSize > mMaxSize && mTail != null)
+            removeEntry(mSections.get(mTail.section), mTail);
+    }
+
+    void remove(int section, int sectionPosition) {
+        Entry entry = find(section, sectionPosition);
+        if (entry != null)
+            removeEntry(mSections.get(section), entry);
+    }
+
+    /**
+     * Drops values of items of {@code section} from {@code sectionPositionStart} to its end
+     */
+    void removeFrom(int section, int sectionPositionStart) {
+        Entry[] entries = mSections.get(section);
+        if (entries == null)
+            return;
+        for (int i = Math.max(sectionPositionStart, 0); i < entries.length; i++) {
+            if (entries[i] != null)
+                removeEntry(entries, entries[i]);
+        }
+    }
+
+    /**
+     * Drops values of all items of sections from {@code sectionStart} on
+     */
+    void removeSections(int sectionStart) {
+        for (int i = mSections.size() - 1; i >= 0; i--) {
+            int section = mSections.keyAt(i);
+            if (section < sectionStart)
+                break;
+            Entry[] entries = mSections.valueAt(i);
+            for (Entry entry : entries) {
+                if (entry != null) {
+                    unlink(entry);
+                    mSize -= entry.size;
+                }
+            }
+            mSections.delete(section);
+        }
+    }
+
+    void clear() {
+        mSections.clear();
+        mHead = mTail = null;
+        mSize = 0;
+    }
+
+    private Entry find(int section, int sectionPosition) {
+        Entry[] entries = mSections.get(section);
+        return entries != null && sectionPosition >= 0 && sectionPosition < entries.length
+                ? entries[sectionPosition] : null;
+    }
+
+    private void removeEntry(Entry[] entries, Entry entry) {
+        entries[entry.position] = null;
+        unlink(entry);
+        mSize -= entry.size;
+    }
+
+    private void linkFirst(Entry entry) {
+        entry.previous = null;
+        entry.next = mHead;
+        if (mHead != null)
+            mHead.previous = entry;
+        mHead = entry;
+        if (mTail == null)
+            mTail = entry;
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null)
+            entry.previous.next = entry.next;
+        else
+            mHead = entry.next;
+        if (entry.next != null)
+            entry.next.previous = entry.previous;
+        else
+            mTail = entry.previous;
+        entry.previous = entry.next = null;
+    }
+
+    private static final class Entry {
+        final int section;
+        final int position;
+        final Object value;
+        final int size;
+        Entry previous;
+        Entry next;
+
+        Entry(int section, int position, Object value, int size) {
+            this.section = section;
+            this.position = position;
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * Bind path counters of a {@link SectionedRecyclerViewAdapter}, set with
+ * {@link SectionedRecyclerViewAdapter#setMetrics(SectionMetrics)}. Records time spent mapping
+ * positions and binding view holders per section and per view type, and counts view holders
+ * created per view type. Counters live in arrays allocated up front, so recording allocates
+ * nothing.
+ * <p>
+ * Sections from {@code sectionCapacity} on share one overflow bucket, and view types beyond
+ * {@code viewTypeCapacity} distinct types share another. A view holder is counted as created
+ * when it is bound for the first time. Record and read metrics on main thread only.
+ */
+@SuppressWarnings("unused")
+public class SectionMetrics {
+
+    private static final int EMPTY = 0;
+    private static final int USED = 1;
+
+    private final int mSectionCapacity;
+    private final long[] mSectionMapNanos;
+    private final long[] mSectionBindNanos;
+    private final long[] mSectionMaxBindNanos;
+    private final int[] mSectionBindCount;
+
+    // Open addressing table of view types, the last slot is the overflow bucket
+    private final int mViewTypeCapacity;
+    private final int[] mViewTypeState;
+    private final int[] mViewTypes;
+    private final long[] mViewTypeBindNanos;
+    private final int[] mViewTypeBindCount;
+    private final int[] mViewTypeCreateCount;
+    private int mViewTypeCount;
+
+    private boolean mTraceEnabled;
+
+    /**
+     * Creates metrics for up to 256 sections and 32 view types
+     */
+    public SectionMetrics() {
+        this(256, 32);
+    }
+
+    /**
+     * @param sectionCapacity Number of sections tracked individually
+     * @param viewTypeCapacity Number of view types tracked individually
+     */
+    public SectionMetrics(int sectionCapacity, int viewTypeCapacity) {
+        mSectionCapacity = sectionCapacity;
+        mSectionMapNanos = new long[sectionCapacity + 1];
+        mSectionBindNanos = new long[sectionCapacity + 1];
+        mSectionMaxBindNanos = new long[sectionCapacity + 1];
+        mSectionBindCount = new int[sectionCapacity + 1];
+        // Table is kept at most half full so that probes stay short
+        int slots = Integer.highestOneBit(Math.max(viewTypeCapacity, 1) * 2 - 1) * 2;
+        mViewTypeCapacity = viewTypeCapacity;
+        mViewTypeState = new int[slots + 1];
+        mViewTypes = new int[slots + 1];
+        mViewTypeBindNanos = new long[slots + 1];
+        mViewTypeBindCount = new int[slots + 1];
+        mViewTypeCreateCount = new int[slots + 1];
+    }
+
+    /**
+     * Wraps binds in systrace sections named {@code SectionedAdapter#bind}. Disabled by default
+     * @param enabled Whether binds should be traced
+     */
+    public void setTraceEnabled(boolean enabled) {
+        mTraceEnabled = enabled;
+    }
+
+    public boolean isTraceEnabled() {
+        return mTraceEnabled;
+    }
+
+    /**
+     * Records one bind
+     * @param section Section of the bound row
+     * @param viewType View type of the bound row
+     * @param created Whether the view holder was bound for the first time
+     * @param mapNanos Time spent mapping the adapter position
+     * @param bindNanos Time spent in bind callbacks
+     */
+    void recordBind(int section, int viewType, boolean created, long mapNanos, long bindNanos) {
+        int bucket = section >= 0 && section < mSectionCapacity ? section : mSectionCapacity;
+        mSectionMapNanos[bucket] += mapNanos;
+        mSectionBindNanos[bucket] += bindNanos;
+        mSectionBindCount[bucket]++;
+        if (bindNanos > mSectionMaxBindNanos[bucket])
+            mSectionMaxBindNanos[bucket] = bindNanos;
+
+        int slot = findViewTypeSlot(viewType);
+        mViewTypeBindNanos[slot] += bindNanos;
+        mViewTypeBindCount[slot]++;
+        if (created)
+            mViewTypeCreateCount[slot]++;
+    }
+
+    /**
+     * @return Slot of {@code viewType}, claiming a free one if it is seen for the first time
+     */
+    private int findViewTypeSlot(int viewType) {
+        int mask = mViewTypes.length - 2;
+        int slot = (viewType * 0x9E3779B9) >>> 16 & mask;
+        while (mViewTypeState[slot] == USED) {
+            if (mViewTypes[slot] == viewType)
+                return slot;
+            slot = (slot + 1) & mask;
+        }
+        if (mViewTypeCount >= mViewTypeCapacity)
+            return mViewTypes.length - 1;
+        mViewTypeState[slot] = USED;
+        mViewTypes[slot] = viewType;
+        mViewTypeCount++;
+        return slot;
+    }
+
+    /**
+     * Clears all counters
+     */
+    public void reset() {
+        Arrays.fill(mSectionMapNanos, 0);
+        Arrays.fill(mSectionBindNanos, 0);
+        Arrays.fill(mSectionMaxBindNanos, 0);
+        Arrays.fill(mSectionBindCount, 0);
+        Arrays.fill(mViewTypeState, EMPTY);
+        Arrays.fill(mViewTypeBindNanos, 0);
+        Arrays.fill(mViewTypeBindCount, 0);
+        Arrays.fill(mViewTypeCreateCount, 0);
+        mViewTypeCount = 0;
+    }
+
+    /**
+     * @return Copy of current counters
+     */
+    public Snapshot snapshot() {
+        int viewTypeCount = mViewTypeCount + (mViewTypeBindCount[mViewTypes.length - 1] > 0 ? 1 : 0);
+        Snapshot snapshot = new Snapshot(mSectionCapacity, viewTypeCount);
+        System.arraycopy(mSectionMapNanos, 0, snapshot.mSectionMapNanos, 0, mSectionCapacity + 1);
+        System.arraycopy(mSectionBindNanos, 0, snapshot.mSectionBindNanos, 0, mSectionCapacity + 1);
+        System.arraycopy(mSectionMaxBindNanos, 0, snapshot.mSectionMaxBindNanos, 0, mSectionCapacity + 1);
+        System.arraycopy(mSectionBindCount, 0, snapshot.mSectionBindCount, 0, mSectionCapacity + 1);
+        int j = 0;
+        for (int i = 0; i < mViewTypes.length; i++) {
+            boolean overflow = i == mViewTypes.length - 1;
+            if (overflow ? mViewTypeBindCount[i] == 0 : mViewTypeState[i] != USED)
+                continue;
+            snapshot.mViewTypes[j] = overflow ? Snapshot.VIEW_TYPE_OTHER : mViewTypes[i];
+            snapshot.mViewTypeBindNanos[j] = mViewTypeBindNanos[i];
+            snapshot.mViewTypeBindCount[j] = mViewTypeBindCount[i];
+            snapshot.mViewTypeCreateCount[j] = mViewTypeCreateCount[i];
+            j++;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Immutable copy of counters of {@link SectionMetrics}. Times are in nanoseconds.
+     */
+    public static class Snapshot {
+
+        /**
+         * View type reported for the bucket shared by view types beyond capacity
+         */
+        public static final int VIEW_TYPE_OTHER = Integer.MAX_VALUE;
+
+        private final int mSectionCapacity;
+        private final long[] mSectionMapNanos;
+        private final long[] mSectionBindNanos;
+        private final long[] mSectionMaxBindNanos;
+        private final int[] mSectionBindCount;
+        private final int[] mViewTypes;
+        private final long[] mViewTypeBindNanos;
+        private final int[] mViewTypeBindCount;
+        private final int[] mViewTypeCreateCount;
+
+        Snapshot(int sectionCapacity, int viewTypeCount) {
+            mSectionCapacity = sectionCapacity;
+            mSectionMapNanos = new long[sectionCapacity + 1];
+            mSectionBindNanos = new long[sectionCapacity + 1];
+            mSectionMaxBindNanos = new long[sectionCapacity + 1];
+            mSectionBindCount = new int[sectionCapacity + 1];
+            mViewTypes = new int[viewTypeCount];
+            mViewTypeBindNanos = new long[viewTypeCount];
+            mViewTypeBindCount = new int[viewTypeCount];
+            mViewTypeCreateCount = new int[viewTypeCount];
+        }
+
+        /**
+         * @return Number of section buckets, the last one is shared by sections beyond capacity
+         */
+        public int getSectionBucketCount() {
+            return mSectionCapacity + 1;
+        }
+
+        /**
+         * @return Bucket in which rows of {@code section} are counted
+         */
+        public int getSectionBucket(int section) {
+            return section >= 0 && section < mSectionCapacity ? section : mSectionCapacity;
+        }
+
+        public int getBindCount(int bucket) {
+            return mSectionBindCount[bucket];
+        }
+
+        public long getMapNanos(int bucket) {
+            return mSectionMapNanos[bucket];
+        }
+
+        public long getBindNanos(int bucket) {
+            return mSectionBindNanos[bucket];
+        }
+
+        public long getMaxBindNanos(int bucket) {
+            return mSectionMaxBindNanos[bucket];
+        }
+
+        /**
+         * @return Number of view types seen, including {@link #VIEW_TYPE_OTHER} if used
+         */
+        public int getViewTypeCount() {
+            return mViewTypes.length;
+        }
+
+        /**
+         * @param index Index from 0 to {@link #getViewTypeCount()}
+         * @return View type at {@code index}
+         */
+        public int getViewType(int index) {
+            return mViewTypes[index];
+        }
+
+        public int getViewTypeBindCount(int index) {
+            return mViewTypeBindCount[index];
+        }
+
+        public long getViewTypeBindNanos(int index) {
+            return mViewTypeBindNanos[index];
+        }
+
+        /**
+         * @return Number of view holders created for view type at {@code index}. Creations beyond
+         * what the visible rows need are misses of the recycled view pool
+         */
+        public int getViewTypeCreateCount(int index) {
+            return mViewTypeCreateCount[index];
+        }
+
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Computes expensive per-item results, e.g. text layouts or measured heights, for items of
+ * sections near the viewport on a background executor, so that binding a row only picks up the
+ * result. Results are held in an LRU cache bounded by {@code maxSize}, measured in units of
+ * {@link #sizeOf(int, int, Object)}, and kept per section by section position so that lookups
+ * don't allocate and results after a changed position are dropped without visiting other sections.
+ * <pre>
+ * public void bind(int section, int sectionPosition, int adapterPosition) {
+ *     mPostView.setLayout(mPrecomputer.getOrCompute(section, sectionPosition));
+ * }
+ * </pre>
+ * Call {@link #precompute(int, int)} with sections around the visible ones, e.g. from a scroll
+ * listener. Results of items changed, removed, inserted before or moved through section-aware
+ * notify methods or {@link SectionedDiffer} are dropped, as are results of sections after a
+ * section inserted or removed by it. Partial changes with a payload keep results. All methods
+ * must be called on main thread.
+ * @param <T> Type of the computed result
+ */
+@SuppressWarnings("unused")
+public abstract class SectionPrecomputer<T> {
+
+    private static ExecutorService sComputeExecutor;
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final SectionItemCache<T> mCache;
+    // Task computing items of a section, replaced or removed when the section changes
+    private final SparseArray<Task> mPending = new SparseArray<Task>();
+
+    private final SectionedRecyclerViewAdapter.SectionDataObserver mObserver = new SectionedRecyclerViewAdapter.SectionDataObserver() {
+        @Override
+        public void onChanged() {
+            for (int i = 0, size = mPending.size(); i < size; i++)
+                mPending.valueAt(i).cancelled = true;
+            mPending.clear();
+            mCache.clear();
+        }
+
+        @Override
+        public void onSectionRangeInserted(int sectionStart, int sectionCount) {
+            invalidateSections(sectionStart);
+        }
+
+        @Override
+        public void onSectionRangeRemoved(int sectionStart, int sectionCount) {
+            invalidateSections(sectionStart);
+        }
+
+        @Override
+        public void onItemRangeChanged(int section, int sectionPositionStart, int itemCount, Object payload) {
+            if (payload != null)
+                return;
+            cancel(section);
+            for (int i = 0; i < itemCount; i++)
+                mCache.remove(section, sectionPositionStart + i);
+        }
+
+        @Override
+        public void onItemRangeInserted(int section, int sectionPositionStart, int itemCount) {
+            invalidate(section, sectionPositionStart);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int section, int sectionPositionStart, int itemCount) {
+            invalidate(section, sectionPositionStart);
+        }
+
+        @Override
+        public void onItemMoved(int fromSection, int fromPosition, int toSection, int toPosition) {
+            invalidate(fromSection, fromPosition);
+            invalidate(toSection, toPosition);
+        }
+    };
+
+    /**
+     * @param adapter Adapter of the items
+     * @param maxSize Capacity of the cache in units of {@link #sizeOf(int, int, Object)}
+     */
+    public SectionPrecomputer(SectionedRecyclerViewAdapter<?> adapter, int maxSize) {
+        this(adapter, maxSize, getDefaultExecutor());
+    }
+
+    public SectionPrecomputer(SectionedRecyclerViewAdapter<?> adapter, int maxSize, Executor executor) {
+        mAdapter = adapter;
+        mExecutor = executor;
+        mCache = new SectionItemCache<T>(maxSize) {
+            @Override
+            int sizeOf(int section, int sectionPosition, T value) {
+                return SectionPrecomputer.this.sizeOf(section, sectionPosition, value);
+            }
+        };
+        adapter.registerSectionDataObserver(mObserver);
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (sComputeExecutor == null)
+            sComputeExecutor = Executors.newSingleThreadExecutor();
+        return sComputeExecutor;
+    }
+
+    /**
+     * Computes the result of an item. Called on the background executor by
+     * {@link #precompute(int, int)}, and on main thread by {@link #getOrCompute(int, int)} if the
+     * result is not ready, so it must only read data which is safe to read from both.
+     * @param section Section of the item
+     * @param sectionPosition Position of the item in the section
+     * @return The result, or {@code null} if it cannot be computed
+     */
+    public abstract T compute(int section, int sectionPosition);
+
+    /**
+     * Size of a result in units of {@code maxSize}. By default it returns 1, so {@code maxSize}
+     * is the number of results held
+     */
+    protected int sizeOf(int section, int sectionPosition, T value) {
+        return 1;
+    }
+
+    /**
+     * @return Result of the item if it is ready, otherwise {@code null}
+     */
+    public T get(int section, int sectionPosition) {
+        return mCache.get(section, sectionPosition);
+    }
+
+    /**
+     * @return Result of the item, computed on the calling thread and cached if it is not ready
+     */
+    public T getOrCompute(int section, int sectionPosition) {
+        T value = mCache.get(section, sectionPosition);
+        if (value == null) {
+            value = compute(section, sectionPosition);
+            if (value != null)
+                mCache.put(section, sectionPosition, value);
+        }
+        return value;
+    }
+
+    /**
+     * Starts computing results of all items of sections {@code firstSection} to
+     * {@code lastSection} which are neither cached nor being computed. Sections are computed
+     * nearest to {@code firstSection} first.
+     * @param firstSection First section, inclusive
+     * @param lastSection Last section, inclusive
+     */
+    public void precompute(int firstSection, int lastSection) {
+        int sectionCount = mAdapter.getSectionCount();
+        for (int section = Math.max(firstSection, 0); section <= lastSection && section < sectionCount; section++)
+            precompute(section, 0, mAdapter.getItemCount(section));
+    }
+
+    /**
+     * Starts computing results of {@code itemCount} items of {@code section} from
+     * {@code sectionPositionStart} which are not cached. Does nothing if items of the section are
+     * being computed.
+     */
+    public void precompute(final int section, int sectionPositionStart, int itemCount) {
+        if (itemCount <= 0 || mPending.get(section) != null)
+            return;
+        int[] positions = new int[itemCount];
+        int count = 0;
+        for (int i = sectionPositionStart; i < sectionPositionStart + itemCount; i++) {
+            if (mCache.get(section, i) == null)
+                positions[count++] = i;
+        }
+        if (count == 0)
+            return;
+        final Task task = new Task(positions, count);
+        mPending.put(section, task);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Object[] results = new Object[task.count];
+                for (int i = 0; i < task.count && !task.cancelled; i++)
+                    results[i] = compute(section, task.positions[i]);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public void run() {
+                        // Section changed while computing, results may belong to other items
+                        if (task.cancelled)
+                            return;
+                        mPending.remove(section);
+                        for (int i = 0; i < task.count; i++) {
+                            if (results[i] != null)
+                                mCache.put(section, task.positions[i], (T) results[i]);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Drops all results and ignores results being computed
+     */
+    public void clear() {
+        mObserver.onChanged();
+    }
+
+    /**
+     * Stops following changes of the adapter
+     */
+    public void detach() {
+        mAdapter.unregisterSectionDataObserver(mObserver);
+    }
+
+    /**
+     * Drops results of items of {@code section} from {@code sectionPosition} on, whose positions
+     * shifted, and ignores results being computed for the section
+     */
+    private void invalidate(int section, int sectionPosition) {
+        cancel(section);
+        mCache.removeFrom(section, sectionPosition);
+    }
+
+    /**
+     * Drops results of sections from {@code sectionStart} on, whose numbers shifted, and ignores
+     * results being computed for them
+     */
+    private void invalidateSections(int sectionStart) {
+        for (int i = mPending.size() - 1; i >= 0; i--) {
+            int section = mPending.keyAt(i);
+            if (section >= sectionStart) {
+                mPending.valueAt(i).cancelled = true;
+                mPending.delete(section);
+            }
+        }
+        mCache.removeSections(sectionStart);
+    }
+
+    private void cancel(int section) {
+        Task task = mPending.get(section);
+        if (task != null) {
+            task.cancelled = true;
+            mPending.remove(section);
+        }
+    }
+
+    private static final class Task {
+        final int[] positions;
+        final int count;
+        // Set on main thread when the section changes, read by the executor to stop early
+        volatile boolean cancelled;
+
+        Task(int[] positions, int count) {
+            this.positions = positions;
+            this.count = count;
+        }
+    }
+
+}
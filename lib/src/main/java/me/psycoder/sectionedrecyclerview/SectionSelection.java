@@ -0,0 +1,294 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.util.SparseArray;
+
+import java.util.BitSet;
+
+/**
+ * Selection of items of a {@link SectionedRecyclerViewAdapter}, kept per section as a bit set and
+ * a selected count. Selecting or clearing a whole section flips the meaning of its bits instead of
+ * touching every item, so both are O(1). Selection follows items inserted, removed and moved with
+ * section-aware notify methods, and sections inserted or removed by {@link SectionedDiffer}. It is
+ * dropped when the data set changes.
+ * <p>
+ * Changes of selection are notified as partial changes with payload {@link #PAYLOAD_SELECTION},
+ * handle it in {@link SectionedRecyclerViewAdapter.ViewHolder#bind(int, int, int, java.util.List)}
+ * by updating only the selected state.
+ */
+@SuppressWarnings("unused")
+public class SectionSelection {
+
+    /**
+     * Payload of changes of selection
+     */
+    public static final Object PAYLOAD_SELECTION = new Object();
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final SparseArray<Section> mSections = new SparseArray<Section>();
+    private int mSelectedCount;
+
+    private final SectionedRecyclerViewAdapter.SectionDataObserver mObserver = new SectionedRecyclerViewAdapter.SectionDataObserver() {
+        @Override
+        public void onChanged() {
+            // Items are rebound anyway, so nothing is notified
+            mSections.clear();
+            mSelectedCount = 0;
+        }
+
+        @Override
+        public void onSectionRangeInserted(int sectionStart, int sectionCount) {
+            shiftSections(sectionStart, sectionCount);
+        }
+
+        @Override
+        public void onSectionRangeRemoved(int sectionStart, int sectionCount) {
+            for (int i = 0; i < sectionCount; i++) {
+                Section state = mSections.get(sectionStart + i);
+                if (state != null)
+                    mSelectedCount -= state.mCount;
+            }
+            shiftSections(sectionStart + sectionCount, -sectionCount);
+        }
+
+        @Override
+        public void onItemRangeInserted(int section, int sectionPositionStart, int itemCount) {
+            Section state = mSections.get(section);
+            if (state != null)
+                state.insert(sectionPositionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int section, int sectionPositionStart, int itemCount) {
+            Section state = mSections.get(section);
+            if (state != null)
+                mSelectedCount -= state.remove(sectionPositionStart, itemCount);
+        }
+
+        @Override
+        public void onItemMoved(int fromSection, int fromPosition, int toSection, int toPosition) {
+            Section from = mSections.get(fromSection);
+            boolean selected = from != null && from.isSelected(fromPosition);
+            if (from != null)
+                mSelectedCount -= from.remove(fromPosition, 1);
+            Section to = selected ? getSection(toSection) : mSections.get(toSection);
+            if (to != null)
+                to.insert(toPosition, 1);
+            if (selected) {
+                to.set(toPosition, true);
+                mSelectedCount++;
+            }
+        }
+    };
+
+    /**
+     * Creates an empty selection following changes notified by {@code adapter}
+     * @param adapter Adapter of the selected items
+     */
+    public SectionSelection(SectionedRecyclerViewAdapter<?> adapter) {
+        mAdapter = adapter;
+        adapter.registerSectionDataObserver(mObserver);
+    }
+
+    /**
+     * Stops following changes of the adapter
+     */
+    public void detach() {
+        mAdapter.unregisterSectionDataObserver(mObserver);
+    }
+
+    public boolean isSelected(int section, int sectionPosition) {
+        Section state = mSections.get(section);
+        return state != null && state.isSelected(sectionPosition);
+    }
+
+    /**
+     * Selects or deselects an item, rebinding it if its state changed
+     * @return Whether the state of the item changed
+     */
+    public boolean setSelected(int section, int sectionPosition, boolean selected) {
+        Section state = selected ? getSection(section) : mSections.get(section);
+        if (state == null || state.isSelected(sectionPosition) == selected)
+            return false;
+        state.set(sectionPosition, selected);
+        mSelectedCount += selected ? 1 : -1;
+        mAdapter.notifyItemChanged(section, sectionPosition, PAYLOAD_SELECTION);
+        return true;
+    }
+
+    /**
+     * Flips selected state of an item
+     * @return Whether the item is selected now
+     */
+    public boolean toggle(int section, int sectionPosition) {
+        boolean selected = !isSelected(section, sectionPosition);
+        setSelected(section, sectionPosition, selected);
+        return selected;
+    }
+
+    /**
+     * Selects all items of {@code section}
+     */
+    public void selectAll(int section) {
+        int itemCount = mAdapter.getItemCount(section);
+        Section state = getSection(section);
+        if (state.mCount == itemCount)
+            return;
+        mSelectedCount += itemCount - state.mCount;
+        state.fill(true, itemCount);
+        mAdapter.notifyItemRangeChanged(section, 0, itemCount, PAYLOAD_SELECTION);
+    }
+
+    /**
+     * Deselects all items of {@code section}
+     */
+    public void clear(int section) {
+        Section state = mSections.get(section);
+        if (state == null || state.mCount == 0)
+            return;
+        mSelectedCount -= state.mCount;
+        state.fill(false, 0);
+        mAdapter.notifyItemRangeChanged(section, 0, mAdapter.getItemCount(section), PAYLOAD_SELECTION);
+    }
+
+    /**
+     * Deselects all items of all sections
+     */
+    public void clearAll() {
+        for (int i = 0, size = mSections.size(); i < size; i++)
+            clear(mSections.keyAt(i));
+        mSections.clear();
+    }
+
+    /**
+     * @return Number of selected items in {@code section}
+     */
+    public int getSelectedCount(int section) {
+        Section state = mSections.get(section);
+        return state == null ? 0 : state.mCount;
+    }
+
+    /**
+     * @return Number of selected items in all sections
+     */
+    public int getSelectedCount() {
+        return mSelectedCount;
+    }
+
+    /**
+     * Iterates selected items of a section without allocating:
+     * {@code for (int i = selection.nextSelected(section, 0); i != -1; i = selection.nextSelected(section, i + 1))}
+     * @param section The section
+     * @param fromPosition Section position to start searching from
+     * @return Next selected section position from {@code fromPosition}, or -1 if there is none
+     */
+    public int nextSelected(int section, int fromPosition) {
+        Section state = mSections.get(section);
+        if (state == null || state.mCount == 0)
+            return -1;
+        int position = state.mInverted ? state.mBits.nextClearBit(fromPosition) : state.mBits.nextSetBit(fromPosition);
+        return position >= 0 && position < mAdapter.getItemCount(section) ? position : -1;
+    }
+
+    /**
+     * Moves selection of sections from {@code sectionStart} on by {@code delta}, dropping that of
+     * sections moved over when {@code delta} is negative
+     */
+    private void shiftSections(int sectionStart, int delta) {
+        int size = mSections.size();
+        int first = 0;
+        while (first < size && mSections.keyAt(first) < sectionStart + Math.min(delta, 0))
+            first++;
+        if (first == size)
+            return;
+        Section[] shifted = new Section[size - first];
+        int[] keys = new int[size - first];
+        for (int i = first; i < size; i++) {
+            keys[i - first] = mSections.keyAt(i);
+            shifted[i - first] = mSections.valueAt(i);
+        }
+        for (int key : keys)
+            mSections.delete(key);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] >= sectionStart)
+                mSections.put(keys[i] + delta, shifted[i]);
+        }
+    }
+
+    private Section getSection(int section) {
+        Section state = mSections.get(section);
+        if (state == null) {
+            state = new Section();
+            mSections.put(section, state);
+        }
+        return state;
+    }
+
+    /**
+     * Selection of one section. An item is selected if its bit differs from {@link #mInverted}
+     */
+    private static class Section {
+
+        final BitSet mBits = new BitSet();
+        boolean mInverted;
+        int mCount;
+
+        boolean isSelected(int position) {
+            return mBits.get(position) != mInverted;
+        }
+
+        void set(int position, boolean selected) {
+            mBits.set(position, selected != mInverted);
+            mCount += selected ? 1 : -1;
+        }
+
+        void fill(boolean selected, int count) {
+            mBits.clear();
+            mInverted = selected;
+            mCount = count;
+        }
+
+        /**
+         * Shifts items from {@code position} by {@code count}, inserted items are not selected
+         */
+        void insert(int position, int count) {
+            int length = mBits.length();
+            if (position < length) {
+                for (int i = length - 1; i >= position; i--)
+                    mBits.set(i + count, mBits.get(i));
+            }
+            mBits.set(position, position + count, mInverted);
+        }
+
+        /**
+         * Shifts items after removed ones back by {@code count}
+         * @return Number of selected items removed
+         */
+        int remove(int position, int count) {
+            int selected = mBits.get(position, position + count).cardinality();
+            if (mInverted)
+                selected = count - selected;
+            int length = mBits.length();
+            for (int i = position; i < length; i++)
+                mBits.set(i, mBits.get(i + count));
+            mCount -= selected;
+            return selected;
+        }
+
+    }
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable structure of sections, i.e. item count, header and footer of every section, with
+ * offsets of sections computed when it is built. Snapshots are built with a {@link Builder} on
+ * any thread, e.g. where the data arrives, and applied on main thread by
+ * {@link SectionedRecyclerViewAdapter#submitSnapshot(SectionSnapshot)}. A snapshot built upon
+ * another one also carries the notifications which turn the other one into it, so applying it
+ * only copies the offsets and dispatches the recorded notifications.
+ * <pre>
+ * // Background thread
+ * final SectionSnapshot snapshot = mLastSnapshot.buildUpon()
+ *         .insertItems(section, 0, newMessages.size())
+ *         .build();
+ * mLastSnapshot = snapshot;
+ * mainHandler.post(new Runnable() {
+ *     public void run() {
+ *         mMessages.get(section).addAll(0, newMessages);
+ *         adapter.submitSnapshot(snapshot);
+ *     }
+ * });
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public final class SectionSnapshot {
+
+    private static final int FLAG_HEADER = 1;
+    private static final int FLAG_FOOTER = 2;
+
+    private static final AtomicInteger sNextId = new AtomicInteger();
+
+    /**
+     * Snapshot without sections
+     */
+    public static final SectionSnapshot EMPTY = new Builder().build();
+
+    private final int mId;
+    // Id of the snapshot this one was built upon, 0 if built from scratch
+    private final int mBaseId;
+    private final int[] mItemCounts;
+    private final int[] mFlags;
+    private final SectionIndex mIndex;
+    // Notifications from the base snapshot to this one, only dispatched, never recorded to
+    private final UpdateCoalescer mUpdates;
+
+    private SectionSnapshot(int baseId, int[] itemCounts, int[] flags, UpdateCoalescer updates) {
+        mId = sNextId.incrementAndGet();
+        mBaseId = baseId;
+        mItemCounts = itemCounts;
+        mFlags = flags;
+        mUpdates = updates;
+        int[] spans = new int[itemCounts.length];
+        for (int i = 0; i < spans.length; i++)
+            spans[i] = getSectionSpan(i);
+        mIndex = new SectionIndex();
+        mIndex.build(spans);
+    }
+
+    public int getSectionCount() {
+        return mItemCounts.length;
+    }
+
+    public int getItemCount(int section) {
+        return mItemCounts[section];
+    }
+
+    public boolean hasHeader(int section) {
+        return (mFlags[section] & FLAG_HEADER) != 0;
+    }
+
+    public boolean hasFooter(int section) {
+        return (mFlags[section] & FLAG_FOOTER) != 0;
+    }
+
+    /**
+     * @return Number of rows of all sections, including headers and footers
+     */
+    public int getRowCount() {
+        return mIndex.getItemCount();
+    }
+
+    /**
+     * @param section The section, may be equal to section count
+     * @return Position of the first row of {@code section} if all sections are expanded
+     */
+    public int getSectionStart(int section) {
+        return mIndex.getSectionStart(section);
+    }
+
+    /**
+     * @return A builder starting from this snapshot, recording notifications from it
+     */
+    public Builder buildUpon() {
+        return new Builder(this);
+    }
+
+    private int getSectionSpan(int section) {
+        return mItemCounts[section] + Integer.bitCount(mFlags[section]);
+    }
+
+    /**
+     * @return Whether this snapshot was built upon {@code snapshot}, or from scratch if it is
+     * {@code null}
+     */
+    boolean isBuiltUpon(SectionSnapshot snapshot) {
+        return mBaseId == (snapshot == null ? 0 : snapshot.mId);
+    }
+
+    SectionIndex getIndex() {
+        return mIndex;
+    }
+
+    UpdateCoalescer getUpdates() {
+        return mUpdates;
+    }
+
+    /**
+     * Builds snapshots and records notifications of every change as adapter positions, assuming
+     * all sections are expanded. A builder is not thread safe, use it from one thread at a time.
+     */
+    public static final class Builder {
+
+        private int mBaseId;
+        private int[] mItemCounts;
+        private int[] mFlags;
+        private int mSectionCount;
+        private UpdateCoalescer mUpdates = new UpdateCoalescer();
+
+        /**
+         * Creates a builder without sections. Snapshots built from it can only be applied
+         * incrementally to an adapter which has no rows.
+         */
+        public Builder() {
+            mItemCounts = new int[8];
+            mFlags = new int[8];
+        }
+
+        private Builder(SectionSnapshot base) {
+            mBaseId = base.mId;
+            mSectionCount = base.mItemCounts.length;
+            mItemCounts = Arrays.copyOf(base.mItemCounts, Math.max(mSectionCount, 8));
+            mFlags = Arrays.copyOf(base.mFlags, mItemCounts.length);
+        }
+
+        public int getSectionCount() {
+            return mSectionCount;
+        }
+
+        public int getItemCount(int section) {
+            return mItemCounts[section];
+        }
+
+        /**
+         * Adds a section after the last one
+         */
+        public Builder addSection(int itemCount, boolean hasHeader, boolean hasFooter) {
+            return insertSection(mSectionCount, itemCount, hasHeader, hasFooter);
+        }
+
+        /**
+         * Inserts a section at {@code section}, shifting following sections
+         */
+        public Builder insertSection(int section, int itemCount, boolean hasHeader, boolean hasFooter) {
+            if (mSectionCount == mItemCounts.length) {
+                mItemCounts = Arrays.copyOf(mItemCounts, mSectionCount * 2);
+                mFlags = Arrays.copyOf(mFlags, mSectionCount * 2);
+            }
+            System.arraycopy(mItemCounts, section, mItemCounts, section + 1, mSectionCount - section);
+            System.arraycopy(mFlags, section, mFlags, section + 1, mSectionCount - section);
+            mItemCounts[section] = itemCount;
+            mFlags[section] = (hasHeader ? FLAG_HEADER : 0) | (hasFooter ? FLAG_FOOTER : 0);
+            mSectionCount++;
+            mUpdates.insert(getSectionStart(section), getSectionSpan(section));
+            return this;
+        }
+
+        /**
+         * Removes {@code section} with its header, items and footer
+         */
+        public Builder removeSection(int section) {
+            mUpdates.remove(getSectionStart(section), getSectionSpan(section));
+            System.arraycopy(mItemCounts, section + 1, mItemCounts, section, mSectionCount - section - 1);
+            System.arraycopy(mFlags, section + 1, mFlags, section, mSectionCount - section - 1);
+            mSectionCount--;
+            return this;
+        }
+
+        public Builder insertItems(int section, int sectionPositionStart, int itemCount) {
+            mUpdates.insert(getItemStart(section) + sectionPositionStart, itemCount);
+            mItemCounts[section] += itemCount;
+            return this;
+        }
+
+        public Builder removeItems(int section, int sectionPositionStart, int itemCount) {
+            mUpdates.remove(getItemStart(section) + sectionPositionStart, itemCount);
+            mItemCounts[section] -= itemCount;
+            return this;
+        }
+
+        /**
+         * @param payload Payload of the change, {@code null} for a full rebind
+         */
+        public Builder changeItems(int section, int sectionPositionStart, int itemCount, Object payload) {
+            mUpdates.change(getItemStart(section) + sectionPositionStart, itemCount, payload);
+            return this;
+        }
+
+        /**
+         * Moves an item, within its section or to another one
+         * @param toPosition Position of the item in {@code toSection} after the move
+         */
+        public Builder moveItem(int fromSection, int fromPosition, int toSection, int toPosition) {
+            int fromAdapterPosition = getItemStart(fromSection) + fromPosition;
+            mItemCounts[fromSection]--;
+            mItemCounts[toSection]++;
+            mUpdates.move(fromAdapterPosition, getItemStart(toSection) + toPosition);
+            return this;
+        }
+
+        /**
+         * Builds a snapshot of the current sections. The builder continues from the built
+         * snapshot, so it can be used to build the next one.
+         */
+        public SectionSnapshot build() {
+            SectionSnapshot snapshot = new SectionSnapshot(mBaseId, Arrays.copyOf(mItemCounts, mSectionCount),
+                    Arrays.copyOf(mFlags, mSectionCount), mUpdates);
+            mBaseId = snapshot.mId;
+            mUpdates = new UpdateCoalescer();
+            return snapshot;
+        }
+
+        private int getSectionSpan(int section) {
+            return mItemCounts[section] + Integer.bitCount(mFlags[section]);
+        }
+
+        private int getSectionStart(int section) {
+            int position = 0;
+            for (int i = 0; i < section; i++)
+                position += getSectionSpan(i);
+            return position;
+        }
+
+        private int getItemStart(int section) {
+            return getSectionStart(section) + ((mFlags[section] & FLAG_HEADER) != 0 ? 1 : 0);
+        }
+
+    }
+
+}
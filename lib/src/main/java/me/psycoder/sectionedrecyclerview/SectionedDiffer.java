@@ -0,0 +1,514 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Computes difference between two lists of sections on a background thread and notifies a
+ * {@link SectionedRecyclerViewAdapter} with the minimal set of range notifications. Sections are
+ * first matched by {@link Callback#getSectionId(Object) id}, items of matched sections are then
+ * matched by {@link Callback#areItemsTheSame(Object, Object)}. Section observers of the adapter
+ * are told of inserted and removed sections and of changed items of matched sections.
+ * <p>
+ * The adapter should read its sections from {@link #getCurrentList()}:
+ * <pre>
+ * public int getSectionCount() {
+ *     return mDiffer.getCurrentList().size();
+ * }
+ * </pre>
+ * @param <S> Type of section
+ * @param <T> Type of item in a section
+ */
+public class SectionedDiffer<S, T> {
+
+    /**
+     * Sections or items whose edit distance exceeds this are replaced as a whole
+     */
+    private static final int MAX_EDIT_DISTANCE = 1024;
+
+    private static final int OP_KEEP = 0;
+    private static final int OP_CHANGE = 1;
+    private static final int OP_REMOVE = 2;
+    private static final int OP_INSERT = 3;
+
+    private static final int FLAG_HEADER = 1;
+    private static final int FLAG_FOOTER = 2;
+    private static final int FLAG_EXPANDED = 4;
+
+    private static ExecutorService sDiffExecutor;
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final Callback<S, T> mCallback;
+    private final Executor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private List<S> mList = Collections.emptyList();
+    private int mMaxScheduledGeneration;
+
+    public SectionedDiffer(SectionedRecyclerViewAdapter<?> adapter, Callback<S, T> callback) {
+        this(adapter, callback, getDefaultExecutor());
+    }
+
+    public SectionedDiffer(SectionedRecyclerViewAdapter<?> adapter, Callback<S, T> callback, Executor executor) {
+        mAdapter = adapter;
+        mCallback = callback;
+        mExecutor = executor;
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (sDiffExecutor == null)
+            sDiffExecutor = Executors.newSingleThreadExecutor();
+        return sDiffExecutor;
+    }
+
+    /**
+     * @return Sections last applied to the adapter. Never modify this list
+     */
+    public List<S> getCurrentList() {
+        return mList;
+    }
+
+    /**
+     * Computes difference from current list to {@code newList} on the background executor and
+     * then, on main thread, replaces current list and notifies the adapter. If this is called
+     * again before the difference is computed, the older result is dropped.
+     * Must be called on main thread.
+     * @param newList New sections, must not be modified afterwards
+     */
+    public void submitList(final List<S> newList) {
+        final int generation = ++mMaxScheduledGeneration;
+        final List<S> oldList = mList;
+        if (newList == oldList)
+            return;
+        if (newList == null || newList.isEmpty()) {
+            // Nothing to match, all items are removed
+            UpdateCoalescer coalescer = new UpdateCoalescer();
+            coalescer.remove(0, mAdapter.getItemCount());
+            mList = Collections.emptyList();
+            mAdapter.getSectionObservers().onSectionRangeRemoved(0, oldList.size());
+            mAdapter.dispatchUpdates(coalescer);
+            return;
+        }
+        if (oldList.isEmpty()) {
+            mList = newList;
+            mAdapter.invalidateSectionIndex();
+            UpdateCoalescer coalescer = new UpdateCoalescer();
+            coalescer.insert(0, mAdapter.getItemCount());
+            mAdapter.getSectionObservers().onSectionRangeInserted(0, newList.size());
+            mAdapter.dispatchUpdates(coalescer);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Result result = calculateDiff(oldList, newList);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mMaxScheduledGeneration)
+                            apply(newList, result);
+                    }
+                });
+            }
+        });
+    }
+
+    private void apply(List<S> newList, Result result) {
+        // Rows of old sections are read from the adapter before the list is replaced
+        int oldSectionCount = mList.size();
+        int[] oldSpans = new int[oldSectionCount];
+        int[] oldFlags = new int[oldSectionCount];
+        for (int i = 0; i < oldSectionCount; i++) {
+            oldSpans[i] = mAdapter.getSectionSpan(i);
+            oldFlags[i] = getFlags(i);
+        }
+
+        mList = newList;
+        mAdapter.invalidateSectionIndex();
+        UpdateCoalescer coalescer = new UpdateCoalescer();
+        SectionedRecyclerViewAdapter.SectionDataObserver observers = mAdapter.getSectionObservers();
+        int position = 0;
+        int[] sectionScript = result.sectionScript;
+        for (int i = 0, oldSection = 0, newSection = 0; i < sectionScript.length; i += 2) {
+            int op = sectionScript[i];
+            // Observers see sections before newSection in their new state, like rows of the coalescer
+            if (op == OP_REMOVE)
+                observers.onSectionRangeRemoved(newSection, sectionScript[i + 1]);
+            else if (op == OP_INSERT)
+                observers.onSectionRangeInserted(newSection, sectionScript[i + 1]);
+            for (int n = sectionScript[i + 1]; n > 0; n--) {
+                switch (op) {
+                    case OP_REMOVE:
+                        coalescer.remove(position, oldSpans[oldSection++]);
+                        break;
+                    case OP_INSERT: {
+                        int span = mAdapter.getSectionSpan(newSection++);
+                        coalescer.insert(position, span);
+                        position += span;
+                        break;
+                    }
+                    default:
+                        if (result.itemScripts[oldSection] != null)
+                            notifyItemScript(observers, result.itemScripts[oldSection], newSection);
+                        position = dispatchSection(coalescer, result, position, oldSection++,
+                                oldSpans, oldFlags, newSection++);
+                        break;
+                }
+            }
+        }
+        mAdapter.dispatchUpdates(coalescer);
+    }
+
+    private int getFlags(int section) {
+        return (mAdapter.hasHeader(section) ? FLAG_HEADER : 0)
+                | (mAdapter.hasFooter(section) ? FLAG_FOOTER : 0)
+                | (mAdapter.isSectionExpanded(section) ? FLAG_EXPANDED : 0);
+    }
+
+    /**
+     * Dispatches changes of rows of a section present in both lists
+     * @return Adapter position after the section
+     */
+    private int dispatchSection(UpdateCoalescer coalescer, Result result, int position,
+                                int oldSection, int[] oldSpans, int[] oldFlags, int newSection) {
+        int oldFlag = oldFlags[oldSection], newFlag = getFlags(newSection);
+        position = dispatchRow(coalescer, position, oldFlag, newFlag, FLAG_HEADER);
+        int oldBody = oldSpans[oldSection] - ((oldFlag & FLAG_HEADER) != 0 ? 1 : 0);
+        if ((oldFlag & newFlag & FLAG_EXPANDED) == 0) {
+            // Expanded state is kept per section number and may differ, replace items and footer
+            int newBody = mAdapter.getSectionSpan(newSection) - ((newFlag & FLAG_HEADER) != 0 ? 1 : 0);
+            coalescer.remove(position, oldBody);
+            coalescer.insert(position, newBody);
+            return position + newBody;
+        }
+        int[] itemScript = result.itemScripts[oldSection];
+        if (itemScript == null)
+            position += mAdapter.getItemCount(newSection);
+        else
+            position = dispatchItemScript(coalescer, itemScript, position);
+        return dispatchRow(coalescer, position, oldFlag, newFlag, FLAG_FOOTER);
+    }
+
+    /**
+     * Dispatches insertion or removal of header or footer row
+     * @return Adapter position after the row
+     */
+    private static int dispatchRow(UpdateCoalescer coalescer, int position, int oldFlag, int newFlag, int row) {
+        if ((oldFlag & row) != 0) {
+            if ((newFlag & row) != 0)
+                return position + 1;
+            coalescer.remove(position, 1);
+            return position;
+        }
+        if ((newFlag & row) != 0) {
+            coalescer.insert(position, 1);
+            return position + 1;
+        }
+        return position;
+    }
+
+    private static int dispatchItemScript(UpdateCoalescer coalescer, int[] itemScript, int position) {
+        for (int i = 0; i < itemScript.length; i += 2) {
+            int count = itemScript[i + 1];
+            switch (itemScript[i]) {
+                case OP_KEEP: position += count; break;
+                case OP_CHANGE: coalescer.change(position, count, null); position += count; break;
+                case OP_REMOVE: coalescer.remove(position, count); break;
+                case OP_INSERT: coalescer.insert(position, count); position += count; break;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Tells section observers of items of {@code section} changed by {@code itemScript}, whether
+     * the section is expanded or not
+     */
+    private static void notifyItemScript(SectionedRecyclerViewAdapter.SectionDataObserver observers,
+                                         int[] itemScript, int section) {
+        int sectionPosition = 0;
+        for (int i = 0; i < itemScript.length; i += 2) {
+            int count = itemScript[i + 1];
+            switch (itemScript[i]) {
+                case OP_KEEP: sectionPosition += count; break;
+                case OP_CHANGE: observers.onItemRangeChanged(section, sectionPosition, count, null); sectionPosition += count; break;
+                case OP_REMOVE: observers.onItemRangeRemoved(section, sectionPosition, count); break;
+                case OP_INSERT: observers.onItemRangeInserted(section, sectionPosition, count); sectionPosition += count; break;
+            }
+        }
+    }
+
+    private Result calculateDiff(List<S> oldList, List<S> newList) {
+        int oldSize = oldList.size(), newSize = newList.size();
+        final Object[] oldIds = new Object[oldSize];
+        final Object[] newIds = new Object[newSize];
+        for (int i = 0; i < oldSize; i++)
+            oldIds[i] = mCallback.getSectionId(oldList.get(i));
+        for (int i = 0; i < newSize; i++)
+            newIds[i] = mCallback.getSectionId(newList.get(i));
+
+        Result result = new Result();
+        result.itemScripts = new int[oldSize][];
+        result.sectionScript = diff(oldSize, newSize, new Matcher() {
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                Object oldId = oldIds[oldPosition];
+                return oldId == null ? newIds[newPosition] == null : oldId.equals(newIds[newPosition]);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return true;
+            }
+        });
+
+        int[] sectionScript = result.sectionScript;
+        for (int i = 0, oldSection = 0, newSection = 0; i < sectionScript.length; i += 2) {
+            int op = sectionScript[i], count = sectionScript[i + 1];
+            if (op == OP_REMOVE) {
+                oldSection += count;
+            } else if (op == OP_INSERT) {
+                newSection += count;
+            } else {
+                for (int n = 0; n < count; n++, oldSection++, newSection++) {
+                    S oldSectionData = oldList.get(oldSection), newSectionData = newList.get(newSection);
+                    final List<T> oldItems = mCallback.getItems(oldSectionData);
+                    final List<T> newItems = mCallback.getItems(newSectionData);
+                    long oldHash = mCallback.getContentHash(oldSectionData);
+                    if (oldHash != 0 && oldHash == mCallback.getContentHash(newSectionData)
+                            && oldItems.size() == newItems.size())
+                        continue;
+                    result.itemScripts[oldSection] = diff(oldItems.size(), newItems.size(), new Matcher() {
+                        @Override
+                        public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                            return mCallback.areItemsTheSame(oldItems.get(oldPosition), newItems.get(newPosition));
+                        }
+
+                        @Override
+                        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                            return mCallback.areContentsTheSame(oldItems.get(oldPosition), newItems.get(newPosition));
+                        }
+                    });
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes shortest edit script between two sequences with Myers' algorithm after trimming
+     * common prefix and suffix
+     * @return Script as pairs of operation and run length
+     */
+    private static int[] diff(int oldSize, int newSize, Matcher matcher) {
+        Script script = new Script();
+        int prefix = 0;
+        while (prefix < oldSize && prefix < newSize && matcher.areItemsTheSame(prefix, prefix)) {
+            script.keep(matcher, prefix, prefix);
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < oldSize - prefix && suffix < newSize - prefix
+                && matcher.areItemsTheSame(oldSize - 1 - suffix, newSize - 1 - suffix))
+            suffix++;
+
+        int n = oldSize - prefix - suffix, m = newSize - prefix - suffix;
+        int[] path = n == 0 || m == 0 ? null : middleSnake(prefix, n, m, matcher);
+        if (path == null) {
+            script.add(OP_REMOVE, n);
+            script.add(OP_INSERT, m);
+        } else {
+            // Path is stored backwards as operations of single elements
+            int x = prefix, y = prefix;
+            for (int i = path.length - 1; i >= 0; i--) {
+                int op = path[i];
+                if (op == OP_KEEP) {
+                    script.keep(matcher, x++, y++);
+                } else {
+                    script.add(op, 1);
+                    if (op == OP_REMOVE) x++; else y++;
+                }
+            }
+        }
+        for (int i = 0; i < suffix; i++)
+            script.keep(matcher, oldSize - suffix + i, newSize - suffix + i);
+        return script.toArray();
+    }
+
+    /**
+     * Runs Myers' greedy algorithm on the trimmed sequences
+     * @return Operations of single elements in reverse order or {@code null} if edit distance
+     * exceeds {@link #MAX_EDIT_DISTANCE}
+     */
+    private static int[] middleSnake(int offset, int n, int m, Matcher matcher) {
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        int[] v = new int[2 * max + 3];
+        int[][] trace = new int[max + 1][];
+        for (int d = 0; d <= max; d++) {
+            // Save diagonals -d..d of previous round for backtracking
+            int[] row = new int[2 * d + 1];
+            System.arraycopy(v, max + 1 - d, row, 0, row.length);
+            trace[d] = row;
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[max + 1 + k - 1] < v[max + 1 + k + 1]))
+                    x = v[max + 1 + k + 1];
+                else
+                    x = v[max + 1 + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && matcher.areItemsTheSame(offset + x, offset + y)) {
+                    x++;
+                    y++;
+                }
+                v[max + 1 + k] = x;
+                if (x >= n && y >= m)
+                    return backtrack(trace, d, n, m);
+            }
+        }
+        return null;
+    }
+
+    private static int[] backtrack(int[][] trace, int distance, int n, int m) {
+        int[] path = new int[n + m];
+        int length = 0;
+        int x = n, y = m;
+        for (int d = distance; d > 0; d--) {
+            int[] v = trace[d];
+            int k = x - y;
+            // Values of round d - 1 are stored in trace[d] at index k + d
+            int prevK;
+            if (k == -d || (k != d && v[k - 1 + d] < v[k + 1 + d]))
+                prevK = k + 1;
+            else
+                prevK = k - 1;
+            int prevX = v[prevK + d], prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                path[length++] = OP_KEEP;
+                x--;
+                y--;
+            }
+            path[length++] = prevK == k + 1 ? OP_INSERT : OP_REMOVE;
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            path[length++] = OP_KEEP;
+            x--;
+            y--;
+        }
+        int[] result = new int[length];
+        System.arraycopy(path, 0, result, 0, length);
+        return result;
+    }
+
+    private interface Matcher {
+        boolean areItemsTheSame(int oldPosition, int newPosition);
+        boolean areContentsTheSame(int oldPosition, int newPosition);
+    }
+
+    /**
+     * Run length encoded edit script
+     */
+    private static final class Script {
+
+        private int[] mOps = new int[16];
+        private int mSize;
+
+        void keep(Matcher matcher, int oldPosition, int newPosition) {
+            add(matcher.areContentsTheSame(oldPosition, newPosition) ? OP_KEEP : OP_CHANGE, 1);
+        }
+
+        void add(int op, int count) {
+            if (count == 0)
+                return;
+            if (mSize > 0 && mOps[mSize - 2] == op) {
+                mOps[mSize - 1] += count;
+                return;
+            }
+            if (mSize == mOps.length) {
+                int[] ops = new int[mSize * 2];
+                System.arraycopy(mOps, 0, ops, 0, mSize);
+                mOps = ops;
+            }
+            mOps[mSize++] = op;
+            mOps[mSize++] = count;
+        }
+
+        int[] toArray() {
+            int[] ops = new int[mSize];
+            System.arraycopy(mOps, 0, ops, 0, mSize);
+            return ops;
+        }
+
+    }
+
+    private static final class Result {
+        int[] sectionScript;
+        int[][] itemScripts;
+    }
+
+    /**
+     * Callback used by {@link SectionedDiffer} to match sections and items. Called on the
+     * background executor.
+     * @param <S> Type of section
+     * @param <T> Type of item in a section
+     */
+    public static abstract class Callback<S, T> {
+
+        /**
+         * @param section The section
+         * @return Identity of the section, compared using {@link Object#equals(Object)}
+         */
+        public abstract Object getSectionId(S section);
+
+        /**
+         * @param section The section
+         * @return Items of the section
+         */
+        public abstract List<T> getItems(S section);
+
+        /**
+         * @return Whether both items represent the same object
+         */
+        public abstract boolean areItemsTheSame(T oldItem, T newItem);
+
+        /**
+         * Called only when {@link #areItemsTheSame(Object, Object)} returns {@code true}
+         * @return Whether the displayed data of both items is the same
+         */
+        public abstract boolean areContentsTheSame(T oldItem, T newItem);
+
+        /**
+         * Hash of content of all items of the section. When old and new section of same id
+         * return the same non zero hash, items of the section are not compared at all. By default
+         * it returns 0.
+         * @param section The section
+         * @return Hash of contents of the section or 0 if unknown
+         */
+        public long getContentHash(S section) {
+            return 0;
+        }
+
+    }
+
+}
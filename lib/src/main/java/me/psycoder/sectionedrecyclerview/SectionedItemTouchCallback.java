@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.helper.ItemTouchHelper;
+
+/**
+ * {@link ItemTouchHelper.Callback} reordering items of a {@link SectionedRecyclerViewAdapter} by
+ * drag and drop, within and across sections. Headers and footers cannot be dragged. Dragging an
+ * item over a header or footer moves it into the neighbouring section.
+ * <p>
+ * Every move is checked with {@link #canMoveItem(int, int, int, int)}, applied to the data by
+ * {@link #onMoveItem(int, int, int, int)} and dispatched with a single section-aware
+ * {@code notifyItemMoved}, which patches the section index for the two affected sections
+ * instead of rebuilding it. Collapsed sections are skipped. Swiping is disabled.
+ * <pre>
+ * new ItemTouchHelper(new SectionedItemTouchCallback(adapter) {
+ *     public void onMoveItem(int fromSection, int fromPosition, int toSection, int toPosition) {
+ *         sections.get(toSection).add(toPosition, sections.get(fromSection).remove(fromPosition));
+ *     }
+ * }).attachToRecyclerView(recyclerView);
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public abstract class SectionedItemTouchCallback extends ItemTouchHelper.Callback {
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final int[] mFrom = new int[2];
+    private final int[] mTo = new int[2];
+
+    /**
+     * @param adapter Adapter of the RecyclerView
+     */
+    public SectionedItemTouchCallback(SectionedRecyclerViewAdapter<?> adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * Moves the item in the data. Called before the move is notified to the adapter
+     * @param fromSection Section of the item
+     * @param fromPosition Position of the item in {@code fromSection}
+     * @param toSection Section of the item after the move
+     * @param toPosition Position of the item in {@code toSection} after the move
+     */
+    public abstract void onMoveItem(int fromSection, int fromPosition, int toSection, int toPosition);
+
+    /**
+     * Policy for moves. By default all moves are allowed. Override this to, e.g., keep items in
+     * their section or to deny moves into full sections
+     * @param fromSection Section of the item
+     * @param fromPosition Position of the item in {@code fromSection}
+     * @param toSection Section of the item after the move
+     * @param toPosition Position of the item in {@code toSection} after the move
+     * @return Whether the item may be moved
+     */
+    public boolean canMoveItem(int fromSection, int fromPosition, int toSection, int toPosition) {
+        return true;
+    }
+
+    /**
+     * Returns no movement for headers and footers. Items can be dragged in all directions in a
+     * grid, otherwise along the orientation of the layout.
+     * {@inheritDoc}
+     */
+    @Override
+    public int getMovementFlags(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+        int position = viewHolder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION || mAdapter.adapterToSectionPosition(position, mFrom)[1] < 0)
+            return 0;
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        int dragFlags;
+        if (layoutManager instanceof GridLayoutManager)
+            dragFlags = ItemTouchHelper.UP | ItemTouchHelper.DOWN | ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT;
+        else if (layoutManager instanceof LinearLayoutManager
+                && ((LinearLayoutManager) layoutManager).getOrientation() == LinearLayoutManager.HORIZONTAL)
+            dragFlags = ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT;
+        else
+            dragFlags = ItemTouchHelper.UP | ItemTouchHelper.DOWN;
+        return makeMovementFlags(dragFlags, 0);
+    }
+
+    @Override
+    public boolean onMove(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder, RecyclerView.ViewHolder target) {
+        int fromPosition = viewHolder.getAdapterPosition();
+        int targetPosition = target.getAdapterPosition();
+        if (fromPosition == RecyclerView.NO_POSITION || targetPosition == RecyclerView.NO_POSITION
+                || fromPosition == targetPosition)
+            return false;
+        int[] from = mAdapter.adapterToSectionPosition(fromPosition, mFrom);
+        if (from[1] < 0 || !findDropPosition(from[0], targetPosition, targetPosition > fromPosition))
+            return false;
+        int fromSection = from[0], fromSectionPosition = from[1];
+        int toSection = mTo[0], toSectionPosition = mTo[1];
+        if (!canMoveItem(fromSection, fromSectionPosition, toSection, toSectionPosition))
+            return false;
+        onMoveItem(fromSection, fromSectionPosition, toSection, toSectionPosition);
+        if (fromSection == toSection)
+            mAdapter.notifyItemMoved(fromSection, fromSectionPosition, toSectionPosition);
+        else
+            mAdapter.notifyItemMoved(fromSection, fromSectionPosition, toSection, toSectionPosition);
+        return true;
+    }
+
+    @Override
+    public boolean isItemViewSwipeEnabled() {
+        return false;
+    }
+
+    @Override
+    public void onSwiped(RecyclerView.ViewHolder viewHolder, int direction) {
+
+    }
+
+    /**
+     * Sets {@link #mTo} to section and section position at which an item of {@code fromSection}
+     * dropped over the row at {@code targetPosition} ends up
+     * @param down Whether the item moves towards the end of the adapter
+     * @return Whether the item can be dropped there
+     */
+    private boolean findDropPosition(int fromSection, int targetPosition, boolean down) {
+        int[] to = mAdapter.adapterToSectionPosition(targetPosition, mTo);
+        int section = to[0], sectionPosition = to[1];
+        if (section == RecyclerView.NO_POSITION)
+            return false;
+        if (sectionPosition == SectionedRecyclerViewAdapter.POSITION_HEADER) {
+            // Header of the next section is passed downwards, own header upwards
+            if (down)
+                return setDropPosition(section, 0);
+            return section > 0 && setDropPosition(section - 1, mAdapter.getItemCount(section - 1));
+        }
+        if (sectionPosition == SectionedRecyclerViewAdapter.POSITION_FOOTER) {
+            // Own footer is passed downwards, footer of the previous section upwards
+            if (down)
+                return section + 1 < mAdapter.getSectionCount() && setDropPosition(section + 1, 0);
+            return setDropPosition(section, mAdapter.getItemCount(section));
+        }
+        // Across sections the item lands after the target when moving down
+        return setDropPosition(section, down && section != fromSection ? sectionPosition + 1 : sectionPosition);
+    }
+
+    private boolean setDropPosition(int section, int sectionPosition) {
+        if (!mAdapter.isSectionExpanded(section))
+            return false;
+        mTo[0] = section;
+        mTo[1] = sectionPosition;
+        return true;
+    }
+
+}
@@ -15,30 +15,649 @@
  */
 package me.psycoder.sectionedrecyclerview;
 
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
+import android.widget.SectionIndexer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 @SuppressWarnings("unused")
-public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerViewAdapter.ViewHolder> extends RecyclerView.Adapter<VH> {
+public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerViewAdapter.ViewHolder> extends RecyclerView.Adapter<VH>
+        implements SectionIndexer {
+
+    /**
+     * Section position of the header of a section
+     */
+    public static final int POSITION_HEADER = -2;
+
+    /**
+     * Section position of the footer of a section
+     */
+    public static final int POSITION_FOOTER = -3;
+
+    /**
+     * View type of section headers. Never return this from {@link #getItemViewType(int, int, int)}
+     */
+    public static final int VIEW_TYPE_HEADER = Integer.MIN_VALUE;
+
+    /**
+     * View type of section footers. Never return this from {@link #getItemViewType(int, int, int)}
+     */
+    public static final int VIEW_TYPE_FOOTER = Integer.MIN_VALUE + 1;
+
+    /**
+     * Direction of {@link #onSectionWindowChanged(int, int, int)} when scrolling towards the end
+     */
+    public static final int DIRECTION_FORWARD = 1;
+
+    /**
+     * Direction of {@link #onSectionWindowChanged(int, int, int)} when scrolling towards the start
+     */
+    public static final int DIRECTION_BACKWARD = -1;
+
+    /**
+     * Direction of {@link #onSectionWindowChanged(int, int, int)} when the window changed without
+     * scrolling, e.g. on layout
+     */
+    public static final int DIRECTION_NONE = 0;
+
+    private final SectionIndex mSectionIndex = new SectionIndex();
+    private boolean mSectionIndexEnabled;
+    private boolean mKeepSectionIndex;
+    private int mGeneration;
+    private final int[] mTmpPosition = new int[2];
+    private UpdateCoalescer mBatch;
+    private int mBatchDepth;
+    private final BitSet mCollapsedSections = new BitSet();
+    private final ViewTypeTable mViewTypeTable = new ViewTypeTable();
+    private boolean mViewTypeTableEnabled;
+    private CharSequence[] mSectionTitles;
+    private int mSectionTitlesGeneration;
+    private SectionMetrics mMetrics;
+    private final ArrayList<SectionDataObserver> mSectionObservers = new ArrayList<SectionDataObserver>();
+    private boolean mSectionWindowEnabled;
+    private final int[] mWindowPosition = new int[2];
+    private int mFirstVisibleSection = RecyclerView.NO_POSITION;
+    private int mLastVisibleSection = RecyclerView.NO_POSITION;
+    private float mScrollVelocity;
+    private long mLastScrollTime;
+    private RecyclerView mRecyclerView;
+    // Anchor restored before the adapter was attached, scrolled to on attach
+    private SavedState mPendingAnchor;
+    private SectionSnapshot mSnapshot;
+
+    private final RecyclerView.OnScrollListener mWindowListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                mScrollVelocity = 0;
+                mLastScrollTime = 0;
+            }
+        }
+
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            int delta = dy != 0 ? dy : dx;
+            if (delta != 0) {
+                long now = System.nanoTime();
+                if (mLastScrollTime != 0 && now > mLastScrollTime) {
+                    // Smoothed over frames, a single frame is too noisy
+                    float velocity = delta * 1e9f / (now - mLastScrollTime);
+                    mScrollVelocity = (mScrollVelocity + velocity) / 2;
+                }
+                mLastScrollTime = now;
+            }
+            updateSectionWindow(recyclerView.getLayoutManager(), delta > 0 ? DIRECTION_FORWARD
+                    : delta < 0 ? DIRECTION_BACKWARD : DIRECTION_NONE);
+        }
+    };
+
+    // Forwards to every section observer, for helpers which dispatch adapter positions on their own
+    private final SectionDataObserver mSectionObserverDispatcher = new SectionDataObserver() {
+        @Override
+        public void onChanged() {
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onChanged();
+        }
+
+        @Override
+        public void onSectionRangeInserted(int sectionStart, int sectionCount) {
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onSectionRangeInserted(sectionStart, sectionCount);
+        }
+
+        @Override
+        public void onSectionRangeRemoved(int sectionStart, int sectionCount) {
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onSectionRangeRemoved(sectionStart, sectionCount);
+        }
+
+        @Override
+        public void onItemRangeChanged(int section, int sectionPositionStart, int itemCount, Object payload) {
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onItemRangeChanged(section, sectionPositionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int section, int sectionPositionStart, int itemCount) {
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onItemRangeInserted(section, sectionPositionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int section, int sectionPositionStart, int itemCount) {
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onItemRangeRemoved(section, sectionPositionStart, itemCount);
+        }
+    };
+
+    // Registered only while attached, so that subclasses can still call setHasStableIds() in their
+    // constructor. Notifications while detached are not seen, so cached offsets are dropped on attach
+    private final RecyclerView.AdapterDataObserver mDataObserver = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            checkNotInBatch("Data set change cannot be notified");
+            mGeneration++;
+            mSectionIndex.invalidate();
+            mViewTypeTable.invalidate();
+            for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+                mSectionObservers.get(i).onChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            // Item count of sections is unchanged, index stays valid
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mGeneration++;
+            if (!mKeepSectionIndex) {
+                checkNotInBatch("Rows cannot be notified by adapter position");
+                mSectionIndex.invalidate();
+                mViewTypeTable.invalidate();
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mGeneration++;
+            if (!mKeepSectionIndex) {
+                checkNotInBatch("Rows cannot be notified by adapter position");
+                mSectionIndex.invalidate();
+                mViewTypeTable.invalidate();
+            }
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mGeneration++;
+            if (!mKeepSectionIndex) {
+                checkNotInBatch("Rows cannot be notified by adapter position");
+                mSectionIndex.invalidate();
+                mViewTypeTable.invalidate();
+            }
+        }
+    };
+    private int mAttachedCount;
+
+    /**
+     * Enables a cached index of section offsets. With the index enabled, position mapping is done
+     * in O(log sections) without any allocation and {@link #getItemCount()} is O(1).
+     * Section-aware insert, remove and move notify methods update the index in place, other notify
+     * methods invalidate it while the adapter is attached to a RecyclerView, and it is rebuilt on
+     * attach. Call {@link #invalidateSectionIndex()} if sections change without any notify call,
+     * or through other notify methods while the adapter is detached.
+     * By default, the index is disabled.
+     * @param enabled Whether the section index should be used
+     */
+    public void setSectionIndexEnabled(boolean enabled) {
+        mSectionIndexEnabled = enabled;
+        mSectionIndex.invalidate();
+    }
+
+    /**
+     * @return Whether the cached section index is used for position mapping
+     */
+    public boolean isSectionIndexEnabled() {
+        return mSectionIndexEnabled;
+    }
+
+    /**
+     * Discards cached section offsets. They are rebuilt on next position lookup. Use this when
+     * section count or item count of a section changes without calling any notify method.
+     * Must not be called in a {@link #beginBatch() batch}.
+     */
+    public void invalidateSectionIndex() {
+        checkNotInBatch("Section index cannot be invalidated");
+        mGeneration++;
+        mSectionIndex.invalidate();
+        mViewTypeTable.invalidate();
+    }
+
+    /**
+     * Enables a cached table of view types declared by {@link #getItemViewTypes(int)}. With the
+     * table enabled, view type of an item of a section which declares its view types is answered
+     * without calling {@link #getItemViewType(int, int, int)}. The table is rebuilt when sections
+     * change, i.e. on the same notifications that rebuild the section index. Insertion and removal
+     * of items through section-aware notify methods keep it.
+     * By default, the table is disabled.
+     * @param enabled Whether view types should be read from the table
+     */
+    public void setViewTypeTableEnabled(boolean enabled) {
+        mViewTypeTableEnabled = enabled;
+        mViewTypeTable.invalidate();
+    }
+
+    /**
+     * @return Whether view types are read from the cached table
+     */
+    public boolean isViewTypeTableEnabled() {
+        return mViewTypeTableEnabled;
+    }
+
+    /**
+     * Enables tracking of visible sections of the attached RecyclerView for
+     * {@link #onSectionWindowChanged(int, int, int)}, {@link #getFirstVisibleSection()},
+     * {@link #getLastVisibleSection()} and {@link #getScrollVelocity()}. Tracking maps the first
+     * and last visible positions to sections on every scroll frame, so enable it only if the
+     * window is used.
+     * By default, tracking is disabled.
+     * @param enabled Whether visible sections should be tracked
+     */
+    public void setSectionWindowEnabled(boolean enabled) {
+        if (mSectionWindowEnabled == enabled)
+            return;
+        mSectionWindowEnabled = enabled;
+        if (mRecyclerView != null) {
+            if (enabled)
+                mRecyclerView.addOnScrollListener(mWindowListener);
+            else
+                mRecyclerView.removeOnScrollListener(mWindowListener);
+        }
+        if (!enabled)
+            resetSectionWindow();
+    }
+
+    /**
+     * @return Whether visible sections are tracked
+     */
+    public boolean isSectionWindowEnabled() {
+        return mSectionWindowEnabled;
+    }
+
+    /**
+     * Records time spent mapping positions and binding rows, and view holders created, into
+     * {@code metrics}. By default no metrics are recorded and binding is not measured.
+     * @param metrics Counters to record into, or {@code null} to stop recording
+     */
+    public void setMetrics(SectionMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * @return Counters set by {@link #setMetrics(SectionMetrics)}, or {@code null}
+     */
+    public SectionMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Registers {@code observer} to be told about changes made through section-aware notify
+     * methods, in section positions
+     * @param observer The observer
+     */
+    public void registerSectionDataObserver(SectionDataObserver observer) {
+        if (mSectionObservers.contains(observer))
+            throw new IllegalStateException("Observer " + observer + " is already registered.");
+        mSectionObservers.add(observer);
+    }
+
+    /**
+     * Unregisters {@code observer} registered with {@link #registerSectionDataObserver(SectionDataObserver)}
+     * @param observer The observer
+     */
+    public void unregisterSectionDataObserver(SectionDataObserver observer) {
+        mSectionObservers.remove(observer);
+    }
+
+    /**
+     * @return Counter incremented on every change in structure of sections, used by
+     * {@link ViewHolder} to detect stale section positions
+     */
+    int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Starts recording section-aware notifications instead of dispatching them. Recorded
+     * notifications are resolved to adapter positions as they arrive, merged when they touch
+     * adjacent or overlapping positions, and dispatched by {@link #endBatch()}. Calls may be
+     * nested, notifications are dispatched when the outermost batch ends.
+     * Call this before changing the data. Only section-aware notify methods are recorded. Offsets
+     * are patched by them, so data set change, insertion, removal or move by adapter position and
+     * {@link #invalidateSectionIndex()} throw {@link IllegalStateException} in a batch.
+     */
+    public void beginBatch() {
+        if (mBatchDepth++ == 0) {
+            if (mBatch == null)
+                mBatch = new UpdateCoalescer(this);
+            // Positions are resolved against offsets patched after every recorded notification
+            if (!mSectionIndex.isValid())
+                mSectionIndex.build(this);
+        }
+    }
+
+    /**
+     * Ends the batch started by {@link #beginBatch()} and dispatches recorded notifications
+     */
+    public void endBatch() {
+        if (mBatchDepth == 0)
+            throw new IllegalStateException("endBatch() called without beginBatch()");
+        if (--mBatchDepth == 0) {
+            mKeepSectionIndex = true;
+            mBatch.flush();
+            mKeepSectionIndex = false;
+            // A disabled index is only kept up to date for the batch
+            if (!mSectionIndexEnabled)
+                mSectionIndex.invalidate();
+        }
+    }
+
+    /**
+     * Fails if a batch is open, in which offsets are only kept by section-aware notifications
+     */
+    private void checkNotInBatch(String change) {
+        if (mBatchDepth > 0)
+            throw new IllegalStateException(change + " in a batch");
+    }
+
+    /**
+     * @return Whether notifications are being recorded by {@link #beginBatch()}
+     */
+    public boolean isInBatch() {
+        return mBatchDepth > 0;
+    }
+
+    /**
+     * Replaces sections with {@code snapshot}, which {@link #getSectionCount()},
+     * {@link #getItemCount(int)}, {@link #hasHeader(int)} and {@link #hasFooter(int)} read unless
+     * they are overridden. If the snapshot was built upon the current one, offsets of sections
+     * are copied from it and its recorded notifications are dispatched, so nothing is computed
+     * here. Otherwise, or if any section is collapsed, data set change is notified, and offsets
+     * are still copied unless a section is collapsed.
+     * While a snapshot is set, positions are always mapped through section offsets.
+     * Must be called on main thread, after the data read by the adapter was updated.
+     * @param snapshot The snapshot
+     */
+    public void submitSnapshot(SectionSnapshot snapshot) {
+        if (mBatchDepth > 0)
+            throw new IllegalStateException("Snapshots cannot be submitted in a batch");
+        SectionSnapshot previous = mSnapshot;
+        // A snapshot built from scratch applies to an adapter without rows
+        boolean incremental = snapshot.isBuiltUpon(previous) && mCollapsedSections.isEmpty()
+                && (previous != null || getItemCount() == 0);
+        mSnapshot = snapshot;
+        if (!incremental) {
+            notifyDataSetChanged();
+            // Offsets of the snapshot assume all sections are expanded
+            if (mCollapsedSections.isEmpty())
+                mSectionIndex.set(snapshot.getIndex());
+            else
+                mSectionIndex.invalidate();
+            return;
+        }
+        mSectionIndex.set(snapshot.getIndex());
+        mViewTypeTable.invalidate();
+        mKeepSectionIndex = true;
+        snapshot.getUpdates().dispatch(this);
+        mKeepSectionIndex = false;
+        // Recorded notifications are adapter positions, section observers only learn of a change
+        for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+            mSectionObservers.get(i).onChanged();
+    }
+
+    /**
+     * @return Snapshot set by {@link #submitSnapshot(SectionSnapshot)}, or {@code null}
+     */
+    public SectionSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * Dispatches adapter positions recorded against sections which have all been replaced, e.g.
+     * by {@link SectionFilter}. Cached offsets are dropped once and rebuilt on next lookup.
+     * Section observers are not notified, callers tell them through
+     * {@link #getSectionObservers()} in section positions.
+     */
+    void dispatchUpdates(UpdateCoalescer updates) {
+        invalidateSectionIndex();
+        updates.dispatch(this);
+    }
+
+    /**
+     * @return Observer forwarding to every registered section observer
+     */
+    SectionDataObserver getSectionObservers() {
+        return mSectionObserverDispatcher;
+    }
+
+    /**
+     * @return The section index rebuilt if required, or {@code null} if it is disabled
+     */
+    private SectionIndex getSectionIndex() {
+        if (!mSectionIndexEnabled && mSnapshot == null)
+            return null;
+        if (!mSectionIndex.isValid())
+            mSectionIndex.build(this);
+        return mSectionIndex;
+    }
 
     /**
      * The number of sections this RecyclerView would be divided in. Each section has its own
      * section position which makes it easier to deal with complex data source and complex layouts.
-     * By default, section count is 1 and section position is same as adapter position
+     * By default, section count is that of the {@link #submitSnapshot(SectionSnapshot) snapshot}
+     * if one is set, otherwise 1 and section position is same as adapter position
      * @return Number of sections
      */
     public int getSectionCount() {
-        return 1;
+        return mSnapshot != null ? mSnapshot.getSectionCount() : 1;
     }
 
 
     /**
-     * Get number of items in {@param section}. By default it returns 0.
+     * Get number of items in {@param section}. By default it returns item count of the
+     * {@link #submitSnapshot(SectionSnapshot) snapshot}, or 0.
      * @param section The section for which item count is returned
      * @return Number of items in given section
      */
     public int getItemCount(int section) {
-        return 0;
+        return mSnapshot != null ? mSnapshot.getItemCount(section) : 0;
+    }
+
+    /**
+     * Whether {@code section} has a header. Header is the first row of the section, its section
+     * position is {@link #POSITION_HEADER} and its view type is {@link #VIEW_TYPE_HEADER}. By
+     * default it returns whether the section of the {@link #submitSnapshot(SectionSnapshot) snapshot}
+     * has one, or false.
+     * @param section The section
+     * @return Whether the section has a header
+     */
+    public boolean hasHeader(int section) {
+        return mSnapshot != null && mSnapshot.hasHeader(section);
+    }
+
+    /**
+     * Whether {@code section} has a footer. Footer is the last row of the section, its section
+     * position is {@link #POSITION_FOOTER} and its view type is {@link #VIEW_TYPE_FOOTER}. By
+     * default it returns whether the section of the {@link #submitSnapshot(SectionSnapshot) snapshot}
+     * has one, or false.
+     * @param section The section
+     * @return Whether the section has a footer
+     */
+    public boolean hasFooter(int section) {
+        return mSnapshot != null && mSnapshot.hasFooter(section);
+    }
+
+    /**
+     * @param section The section
+     * @return Number of rows of {@code section} in the adapter, including its header and footer.
+     * A collapsed section only shows its header.
+     */
+    int getSectionSpan(int section) {
+        int span = hasHeader(section) ? 1 : 0;
+        if (!mCollapsedSections.get(section))
+            span += getItemCount(section) + (hasFooter(section) ? 1 : 0);
+        return span;
+    }
+
+    /**
+     * @param section The section, may be equal to section count
+     * @return Adapter position of first row of {@code section}
+     */
+    int getSectionStart(int section) {
+        SectionIndex index = mBatchDepth > 0 ? mSectionIndex : getSectionIndex();
+        if (index != null)
+            return index.getSectionStart(section);
+        int position = 0;
+        for (int i = 0; i < section; i++)
+            position += getSectionSpan(i);
+        return position;
+    }
+
+    /**
+     * @param section The section
+     * @return Whether items of {@code section} are shown. By default all sections are expanded
+     */
+    public boolean isSectionExpanded(int section) {
+        return !mCollapsedSections.get(section);
+    }
+
+    /**
+     * Expands or collapses {@code section}. Items and footer of a collapsed section are not shown
+     * and {@link #getItemCount(int)} is not called for it. Notifies insertion or removal of rows of
+     * the section with a single range notification. Expanded state is kept per section number and is
+     * not moved when sections are inserted or removed.
+     * @param section The section
+     * @param expanded Whether items of the section should be shown
+     */
+    public void setSectionExpanded(int section, boolean expanded) {
+        if (expanded == isSectionExpanded(section))
+            return;
+        int header = hasHeader(section) ? 1 : 0;
+        int rowCount = getItemCount(section) + (hasFooter(section) ? 1 : 0);
+        if (expanded) {
+            mCollapsedSections.clear(section);
+            dispatchRangeInserted(section, header, rowCount);
+        } else {
+            dispatchRangeRemoved(section, header, rowCount);
+            mCollapsedSections.set(section);
+        }
+    }
+
+    /**
+     * Collapses {@code section} if it is expanded and vice versa
+     * @param section The section
+     */
+    public void toggleSection(int section) {
+        setSectionExpanded(section, !isSectionExpanded(section));
+    }
+
+    /**
+     * Expands all sections. Rows of expanded sections are notified as inserted in a single batch,
+     * merged into one range when no header separates them. If headers split them into several
+     * ranges, data set change is notified instead.
+     */
+    public void expandAllSections() {
+        setAllSectionsExpanded(true);
+    }
+
+    /**
+     * Collapses all sections. Rows of collapsed sections are notified as removed in a single
+     * batch, merged into one range when no header separates them. If headers split them into
+     * several ranges, data set change is notified instead.
+     */
+    public void collapseAllSections() {
+        setAllSectionsExpanded(false);
+    }
+
+    private void setAllSectionsExpanded(boolean expanded) {
+        boolean outermost = mBatchDepth == 0;
+        beginBatch();
+        for (int i = 0, sectionCount = getSectionCount(); i < sectionCount; i++)
+            setSectionExpanded(i, expanded);
+        if (!outermost || mBatch.getOpCount() <= 1) {
+            endBatch();
+            return;
+        }
+        // Headers between sections stay, so rows of every section are a range of their own
+        mBatch.clear();
+        mBatchDepth = 0;
+        // Also drops offsets while detached, when the notification is not observed
+        invalidateSectionIndex();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Title of {@code section} shown by a fast scroller such as {@link SectionFastScroller} and
+     * returned by {@link #getSections()}. By default it returns null, which is not shown.
+     * @param section The section
+     * @return Short title of the section, e.g. its first letter
+     */
+    public CharSequence getSectionTitle(int section) {
+        return null;
+    }
+
+    /**
+     * Returns {@link #getSectionTitle(int) titles} of all sections. The array is cached until
+     * sections change. Call {@link #invalidateSectionIndex()} if titles change without any notify
+     * call.
+     * {@inheritDoc}
+     */
+    @Override
+    public CharSequence[] getSections() {
+        int sectionCount = getSectionCount();
+        if (mSectionTitles == null || mSectionTitles.length != sectionCount || mSectionTitlesGeneration != mGeneration) {
+            if (mSectionTitles == null || mSectionTitles.length != sectionCount)
+                mSectionTitles = new CharSequence[sectionCount];
+            for (int i = 0; i < sectionCount; i++)
+                mSectionTitles[i] = getSectionTitle(i);
+            mSectionTitlesGeneration = mGeneration;
+        }
+        return mSectionTitles;
+    }
+
+    /**
+     * Returns adapter position of first row of {@code sectionIndex}, which is O(log sections) with
+     * the section index enabled
+     * {@inheritDoc}
+     */
+    @Override
+    public int getPositionForSection(int sectionIndex) {
+        int sectionCount = getSectionCount();
+        if (sectionCount == 0)
+            return 0;
+        int section = Math.max(0, Math.min(sectionIndex, sectionCount - 1));
+        return Math.max(0, Math.min(getSectionStart(section), getItemCount() - 1));
+    }
+
+    /**
+     * Returns section of the row at {@code position}, which is O(log sections) with the section
+     * index enabled
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSectionForPosition(int position) {
+        int itemCount = getItemCount();
+        if (itemCount == 0)
+            return 0;
+        return adapterToSectionPosition(Math.max(0, Math.min(position, itemCount - 1)), mTmpPosition)[0];
     }
 
     /**
@@ -49,9 +668,12 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      */
     @Override
     public int getItemCount() {
+        SectionIndex index = getSectionIndex();
+        if (index != null)
+            return index.getItemCount();
         int count = 0;
         for (int i = 0; i < getSectionCount(); i++)
-            count += getItemCount(i);
+            count += getSectionSpan(i);
         return count;
     }
 
@@ -63,15 +685,35 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      */
     @Override
     public int getItemViewType(int position) {
-        int pos = position, sectionItemCount;
-        for (int i = 0, sectionCount = getSectionCount(); i < sectionCount; i++) {
-            sectionItemCount = getItemCount(i);
-            if (pos < sectionItemCount) {
-                return getItemViewType(i, pos, position);
-            }
-            pos -= sectionItemCount;
+        int[] pos = adapterToSectionPosition(position, mTmpPosition);
+        int section = pos[0], sectionPosition = pos[1];
+        if (section == RecyclerView.NO_POSITION)
+            throw new IllegalStateException("Value of position " + position + " is out of bounds");
+        if (sectionPosition == POSITION_HEADER)
+            return VIEW_TYPE_HEADER;
+        if (sectionPosition == POSITION_FOOTER)
+            return VIEW_TYPE_FOOTER;
+        if (mViewTypeTableEnabled) {
+            if (!mViewTypeTable.isValid())
+                mViewTypeTable.build(this);
+            if (mViewTypeTable.hasViewTypes(section))
+                return mViewTypeTable.getItemViewType(section, sectionPosition);
         }
-        throw new IllegalStateException("Value of position " + position + " is out of bounds");
+        return getItemViewType(section, sectionPosition, position);
+    }
+
+    /**
+     * Declares view types of items of {@code section} for the
+     * {@link #setViewTypeTableEnabled(boolean) view type table}. Item at {@code sectionPosition}
+     * has view type {@code types[sectionPosition % types.length]}, so a section with a single view
+     * type returns an array of one element. Called once per section when the table is built, the
+     * returned array is copied. By default it returns null, view types of such sections are
+     * queried from {@link #getItemViewType(int, int, int)}.
+     * @param section The section
+     * @return View types of items repeated over the section, or {@code null}
+     */
+    public int[] getItemViewTypes(int section) {
+        return null;
     }
 
     /**
@@ -89,6 +731,59 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
     }
 
 
+    /**
+     * Returns id of the row at {@code position}. Ids of items are queried from
+     * {@link #getItemId(int, int)}, ids of headers and footers are derived from
+     * {@link #getSectionId(int)} as {@code packItemId(sectionId, POSITION_HEADER)} and
+     * {@code packItemId(sectionId, POSITION_FOOTER)}.
+     * {@inheritDoc}
+     */
+    @Override
+    public long getItemId(int position) {
+        int[] pos = adapterToSectionPosition(position, mTmpPosition);
+        int section = pos[0], sectionPosition = pos[1];
+        if (section == RecyclerView.NO_POSITION)
+            return RecyclerView.NO_ID;
+        if (sectionPosition < 0)
+            return packItemId(getSectionId(section), sectionPosition);
+        return getItemId(section, sectionPosition);
+    }
+
+    /**
+     * Return the stable id of an item, used when {@link #setHasStableIds(boolean)} is true. Use
+     * {@link #packItemId(int, int)} to combine id of the section and id of the item within the
+     * section. By default it returns {@link RecyclerView#NO_ID}.
+     * @param section Section of the item
+     * @param sectionPosition Position of item in section
+     * @return The stable id of the item
+     */
+    public long getItemId(int section, int sectionPosition) {
+        return RecyclerView.NO_ID;
+    }
+
+    /**
+     * Stable id of {@code section}, from which ids of its header and footer are derived. By
+     * default it returns {@code section}, which is only stable if sections are not inserted,
+     * removed or moved.
+     * @param section The section
+     * @return Id of the section
+     */
+    public int getSectionId(int section) {
+        return section;
+    }
+
+    /**
+     * Combines ids of a section and of an item within it into a single stable id. Item ids
+     * {@link #POSITION_HEADER} and {@link #POSITION_FOOTER} are used for header and footer of the
+     * section.
+     * @param sectionId Id of the section
+     * @param itemId Id of the item, unique within the section
+     * @return Id with {@code sectionId} in the high and {@code itemId} in the low 32 bits
+     */
+    public static long packItemId(int sectionId, int itemId) {
+        return ((long) sectionId << 32) | (itemId & 0xffffffffL);
+    }
+
     /**
      * Used by {@link SectionedRecyclerViewAdapter} to call {@link #onBindViewHolder(ViewHolder, int, int, int)}
      * with section count and section position
@@ -97,17 +792,53 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      */
     @Override
     public void onBindViewHolder(VH holder, int position) {
-        holder.configure(this);
-        int pos = position, sectionItemCount;
-        for (int i = 0, sectionCount = getSectionCount(); i < sectionCount; i++) {
-            sectionItemCount = getItemCount(i);
-            if (pos < sectionItemCount) {
-                onBindViewHolder(holder, i, pos, position);
-                return;
-            }
-            pos -= sectionItemCount;
+        dispatchBind(holder, position, null);
+    }
+
+    /**
+     * Used by {@link SectionedRecyclerViewAdapter} to call
+     * {@link #onBindViewHolder(ViewHolder, int, int, int, List)} with section count, section position
+     * and payloads. Headers and footers and rows without payloads are bound in full.
+     * Use {@link #onBindViewHolder(SectionedRecyclerViewAdapter.ViewHolder, int, int, int, List)} instead
+     * {@inheritDoc}
+     */
+    @Override
+    public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+        dispatchBind(holder, position, payloads.isEmpty() ? null : payloads);
+    }
+
+    /**
+     * Maps {@code position} and calls the bind callback of its row, measuring both if metrics are set
+     * @param payloads Payloads of a partial bind, or {@code null} for a full bind
+     */
+    private void dispatchBind(VH holder, int position, List<Object> payloads) {
+        SectionMetrics metrics = mMetrics;
+        long start = metrics != null ? System.nanoTime() : 0;
+        boolean created = holder.configure(this);
+        int[] pos = adapterToSectionPosition(position, mTmpPosition);
+        int section = pos[0], sectionPosition = pos[1];
+        if (section == RecyclerView.NO_POSITION)
+            throw new IllegalStateException("Value of position " + position + " is out of bounds");
+        holder.setSectionPosition(section, sectionPosition, position, mGeneration);
+        long mapped = 0;
+        if (metrics != null) {
+            mapped = System.nanoTime();
+            if (metrics.isTraceEnabled())
+                TraceCompat.beginSection("SectionedAdapter#bind");
+        }
+        if (sectionPosition == POSITION_HEADER)
+            onBindHeader(holder, section, position);
+        else if (sectionPosition == POSITION_FOOTER)
+            onBindFooter(holder, section, position);
+        else if (payloads == null)
+            onBindViewHolder(holder, section, sectionPosition, position);
+        else
+            onBindViewHolder(holder, section, sectionPosition, position, payloads);
+        if (metrics != null) {
+            if (metrics.isTraceEnabled())
+                TraceCompat.endSection();
+            metrics.recordBind(section, holder.getItemViewType(), created, mapped - start, System.nanoTime() - mapped);
         }
-        throw new IllegalStateException("Value of position " + position + " is out of bounds");
     }
 
     /**
@@ -124,16 +855,291 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
         holder.bind(section, sectionPosition, adapterPosition);
     }
 
+    /**
+     * Called by @{link SectionedRecyclerViewAdapter} to update the item at the specified position
+     * with payloads passed to {@link #notifyItemChanged(int, int, Object)} or
+     * {@link #notifyItemRangeChanged(int, int, int, Object)}. No need to override this method.
+     * Instead use {@link ViewHolder#bind(int, int, int, List) bind} method of {@link ViewHolder}
+     * @param holder The ViewHolder which should be updated
+     * @param section Section of the item
+     * @param sectionPosition Position of item in section
+     * @param adapterPosition Absolute position of item in the adapter
+     * @param payloads Non-empty list of payloads of the changes
+     */
+    public void onBindViewHolder(VH holder, int section, int sectionPosition, int adapterPosition, List<Object> payloads) {
+        holder.bind(section, sectionPosition, adapterPosition, payloads);
+    }
+
+    /**
+     * Called by {@link SectionedRecyclerViewAdapter} to display the header of {@code section}.
+     * By default it calls {@link ViewHolder#bindHeader(int, int) bindHeader} method of
+     * {@link ViewHolder}
+     * @param holder The ViewHolder created for {@link #VIEW_TYPE_HEADER}
+     * @param section Section of the header
+     * @param adapterPosition Absolute position of header in the adapter
+     */
+    public void onBindHeader(VH holder, int section, int adapterPosition) {
+        holder.bindHeader(section, adapterPosition);
+    }
+
+    /**
+     * Binds the header of {@code section} into {@code holder}, which is not owned by the
+     * RecyclerView, e.g. the pinned header of {@link StickyHeaderDecoration}. Such a holder has
+     * no adapter position to map, so its section is kept as bound, and the bind is not recorded
+     * in {@link SectionMetrics}.
+     */
+    void bindDetachedHeader(VH holder, int section, int adapterPosition) {
+        holder.configure(this);
+        holder.setDetachedSectionPosition(section, POSITION_HEADER);
+        onBindHeader(holder, section, adapterPosition);
+    }
+
+    /**
+     * Called by {@link SectionedRecyclerViewAdapter} to display the footer of {@code section}.
+     * By default it calls {@link ViewHolder#bindFooter(int, int) bindFooter} method of
+     * {@link ViewHolder}
+     * @param holder The ViewHolder created for {@link #VIEW_TYPE_FOOTER}
+     * @param section Section of the footer
+     * @param adapterPosition Absolute position of footer in the adapter
+     */
+    public void onBindFooter(VH holder, int section, int adapterPosition) {
+        holder.bindFooter(section, adapterPosition);
+    }
+
+    /**
+     * Starts tracking visible sections of {@code recyclerView} for
+     * {@link #onSectionWindowChanged(int, int, int)} if
+     * {@link #setSectionWindowEnabled(boolean) enabled}
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        if (mAttachedCount++ == 0) {
+            registerAdapterDataObserver(mDataObserver);
+            // Offsets are kept by section-aware notifications of an open batch
+            if (mBatchDepth == 0)
+                invalidateSectionIndex();
+        }
+        if (mSectionWindowEnabled) {
+            if (mRecyclerView != null)
+                mRecyclerView.removeOnScrollListener(mWindowListener);
+            recyclerView.addOnScrollListener(mWindowListener);
+        }
+        mRecyclerView = recyclerView;
+        if (mPendingAnchor != null) {
+            scrollToAnchor(mPendingAnchor);
+            mPendingAnchor = null;
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        if (--mAttachedCount == 0)
+            unregisterAdapterDataObserver(mDataObserver);
+        if (mRecyclerView == recyclerView) {
+            mRecyclerView = null;
+            recyclerView.removeOnScrollListener(mWindowListener);
+            resetSectionWindow();
+        }
+    }
+
+    private void resetSectionWindow() {
+        mFirstVisibleSection = RecyclerView.NO_POSITION;
+        mLastVisibleSection = RecyclerView.NO_POSITION;
+        mScrollVelocity = 0;
+        mLastScrollTime = 0;
+    }
+
+    /**
+     * Maps first and last visible positions to sections and reports the window if it changed
+     */
+    private void updateSectionWindow(RecyclerView.LayoutManager layoutManager, int direction) {
+        if (!(layoutManager instanceof LinearLayoutManager))
+            return;
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        int firstPosition = linearLayoutManager.findFirstVisibleItemPosition();
+        int lastPosition = linearLayoutManager.findLastVisibleItemPosition();
+        if (firstPosition == RecyclerView.NO_POSITION || lastPosition == RecyclerView.NO_POSITION)
+            return;
+        int firstSection = adapterToSectionPosition(firstPosition, mWindowPosition)[0];
+        int lastSection = adapterToSectionPosition(lastPosition, mWindowPosition)[0];
+        if (firstSection == RecyclerView.NO_POSITION || lastSection == RecyclerView.NO_POSITION)
+            return;
+        if (firstSection == mFirstVisibleSection && lastSection == mLastVisibleSection)
+            return;
+        mFirstVisibleSection = firstSection;
+        mLastVisibleSection = lastSection;
+        onSectionWindowChanged(firstSection, lastSection, direction);
+    }
+
+    /**
+     * Called when a section enters or leaves the visible window of the RecyclerView, e.g. to warm
+     * caches for the section ahead in {@code direction} and to cancel work for sections which
+     * scrolled away. {@link #getScrollVelocity()} tells how far ahead to look. Only called with
+     * {@link #setSectionWindowEnabled(boolean) tracking enabled}, and only
+     * {@link LinearLayoutManager} and its subclasses are tracked.
+     * @param firstSection Section of first visible row
+     * @param lastSection Section of last visible row
+     * @param direction {@link #DIRECTION_FORWARD}, {@link #DIRECTION_BACKWARD} or
+     *                  {@link #DIRECTION_NONE}
+     */
+    public void onSectionWindowChanged(int firstSection, int lastSection, int direction) {
+
+    }
+
+    /**
+     * @return Section of first visible row as of the last scroll or layout, or
+     * {@link RecyclerView#NO_POSITION}
+     */
+    public int getFirstVisibleSection() {
+        return mFirstVisibleSection;
+    }
+
+    /**
+     * @return Section of last visible row as of the last scroll or layout, or
+     * {@link RecyclerView#NO_POSITION}
+     */
+    public int getLastVisibleSection() {
+        return mLastVisibleSection;
+    }
+
+    /**
+     * @return Scroll velocity in pixels per second, positive towards the end, 0 when idle
+     */
+    public float getScrollVelocity() {
+        return mScrollVelocity;
+    }
+
+    /**
+     * Version of the data shown, e.g. a revision of the loaded data, which changes whenever rows of
+     * any section may have changed. With a version, {@link #onSaveInstanceState()} saves rows of
+     * every section and {@link #onRestoreInstanceState(Parcelable)} builds the section index from
+     * them without walking sections if the version is still the same. By default it returns 0, the
+     * version is unknown and the index is rebuilt on next lookup after a restore.
+     * @return Version of the data, or 0 if unknown
+     */
+    public long getDataVersion() {
+        return 0;
+    }
+
+    /**
+     * Saves collapsed state of sections and the first visible row as section and section position,
+     * so that {@link #onRestoreInstanceState(Parcelable)} can scroll back to the same row even if
+     * rows before it changed. Rows of every section are saved as well if
+     * {@link #getDataVersion()} is known.
+     * @return State to be put in the saved instance state of the activity or fragment
+     */
+    public Parcelable onSaveInstanceState() {
+        int sectionCount = getSectionCount();
+        SavedState state = new SavedState();
+        state.mDataVersion = getDataVersion();
+        state.mSectionSpans = new int[state.mDataVersion != 0 ? sectionCount : 0];
+        for (int i = 0; i < state.mSectionSpans.length; i++)
+            state.mSectionSpans[i] = getSectionSpan(i);
+        int collapsedCount = mCollapsedSections.get(0, sectionCount).cardinality();
+        state.mCollapsedSections = new int[collapsedCount];
+        for (int i = mCollapsedSections.nextSetBit(0), j = 0; j < collapsedCount; i = mCollapsedSections.nextSetBit(i + 1))
+            state.mCollapsedSections[j++] = i;
+        RecyclerView.LayoutManager layoutManager = mRecyclerView != null ? mRecyclerView.getLayoutManager() : null;
+        if (layoutManager instanceof LinearLayoutManager) {
+            LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+            int position = linearLayoutManager.findFirstVisibleItemPosition();
+            View first = position == RecyclerView.NO_POSITION ? null : linearLayoutManager.findViewByPosition(position);
+            if (first != null) {
+                int[] pos = adapterToSectionPosition(position, mTmpPosition);
+                state.mAnchorSection = pos[0];
+                state.mAnchorSectionPosition = pos[1];
+                state.mAnchorOffset = linearLayoutManager.getOrientation() == LinearLayoutManager.VERTICAL
+                        ? first.getTop() - mRecyclerView.getPaddingTop()
+                        : first.getLeft() - mRecyclerView.getPaddingLeft();
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Restores state saved by {@link #onSaveInstanceState()}. Collapsed sections are restored.
+     * If the section index is enabled and {@link #getDataVersion()} and the section count are
+     * those saved, saved rows of sections are trusted and the index is built from them, otherwise
+     * it is rebuilt on next lookup. The RecyclerView is scrolled to the saved row, once the adapter
+     * is attached if it is not yet.
+     * <p>
+     * Call this before setting the adapter on the RecyclerView, so that no data set change is
+     * notified. A scroll position the RecyclerView restores from its own state afterwards takes
+     * precedence over the saved row, so disable saving of the RecyclerView with
+     * {@link View#setSaveEnabled(boolean)} to rely on the saved row.
+     * @param state State returned by {@link #onSaveInstanceState()}
+     */
+    public void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState))
+            return;
+        SavedState savedState = (SavedState) state;
+        int sectionCount = getSectionCount();
+        mCollapsedSections.clear();
+        for (int section : savedState.mCollapsedSections) {
+            if (section < sectionCount)
+                mCollapsedSections.set(section);
+        }
+        if (mRecyclerView != null)
+            notifyDataSetChanged();
+        invalidateSectionIndex();
+        // Comparing saved rows with current ones would walk sections, the version stands for them
+        long dataVersion = getDataVersion();
+        if (mSectionIndexEnabled && dataVersion != 0 && dataVersion == savedState.mDataVersion
+                && savedState.mSectionSpans.length == sectionCount)
+            mSectionIndex.build(savedState.mSectionSpans);
+        if (savedState.mAnchorSection == RecyclerView.NO_POSITION || savedState.mAnchorSection >= sectionCount)
+            return;
+        if (mRecyclerView != null)
+            scrollToAnchor(savedState);
+        else
+            mPendingAnchor = savedState;
+    }
+
+    /**
+     * Scrolls to the saved row, or to the nearest row of its section if the section changed
+     */
+    private void scrollToAnchor(SavedState state) {
+        RecyclerView.LayoutManager layoutManager = mRecyclerView.getLayoutManager();
+        int itemCount = getItemCount();
+        if (!(layoutManager instanceof LinearLayoutManager) || itemCount == 0)
+            return;
+        int section = state.mAnchorSection, sectionPosition = state.mAnchorSectionPosition;
+        int position;
+        if (sectionPosition == POSITION_HEADER || mCollapsedSections.get(section) || getItemCount(section) == 0)
+            position = getSectionStart(section);
+        else if (sectionPosition == POSITION_FOOTER)
+            position = getSectionStart(section + 1) - 1;
+        else
+            position = sectionToAdapterPosition(section, Math.min(sectionPosition, getItemCount(section) - 1));
+        position = Math.max(0, Math.min(position, itemCount - 1));
+        ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(position, state.mAnchorOffset);
+    }
+
+    /**
+     * Calls {@link ViewHolder#onRecycled()} of the recycled view holder
+     * {@inheritDoc}
+     */
+    @Override
+    public void onViewRecycled(VH holder) {
+        holder.onRecycled();
+    }
+
     /**
      * Changes position of item from relative to absolute
      * @param section The section of current item who's relative position is given
-     * @param sectionPosition The section position of item in the given section
+     * @param sectionPosition The section position of item in the given section, or
+     *                        {@link #POSITION_HEADER} or {@link #POSITION_FOOTER}
      * @return Absolute adapter position of item
      */
     protected int sectionToAdapterPosition(int section, int sectionPosition) {
-        int adapterPosition = 0;
-        for (int i = 0; i < section; i++)
-            adapterPosition += getItemCount(i);
+        int adapterPosition = getSectionStart(section);
+        if (sectionPosition == POSITION_HEADER)
+            return adapterPosition;
+        if (hasHeader(section))
+            adapterPosition++;
+        if (sectionPosition == POSITION_FOOTER)
+            return adapterPosition + getItemCount(section);
         return adapterPosition + sectionPosition;
     }
 
@@ -144,34 +1150,66 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * and second value is the relative position inside this section
      */
     protected int[] adapterToSectionPosition(int adapterPosition) {
-        int sectionItemCount;
-        for (int i = 0, sectionCount = getSectionCount(); i < sectionCount; i++) {
-            sectionItemCount = getItemCount(i);
-            if (adapterPosition < sectionItemCount) {
-                return new int[] { i, adapterPosition };
+        return adapterToSectionPosition(adapterPosition, new int[2]);
+    }
+
+    /**
+     * Changes position of item from absolute to relative without any allocation. The passed array
+     * is updated with new value.
+     * @param adapterPosition The absolute position of item
+     * @param pos An array of at least two {@code int} to be filled
+     * @return The passed array where first value is section to which the item belongs
+     * and second value is the relative position inside this section, {@link #POSITION_HEADER}
+     * or {@link #POSITION_FOOTER}
+     */
+    protected int[] adapterToSectionPosition(int adapterPosition, int[] pos) {
+        if (adapterPosition >= 0) {
+            SectionIndex index = getSectionIndex();
+            if (index != null) {
+                int section = index.getSection(adapterPosition);
+                if (section != RecyclerView.NO_POSITION)
+                    return rowToSectionPosition(section, adapterPosition - index.getSectionStart(section), pos);
+            } else {
+                int sectionSpan;
+                for (int i = 0, sectionCount = getSectionCount(); i < sectionCount; i++) {
+                    sectionSpan = getSectionSpan(i);
+                    if (adapterPosition < sectionSpan)
+                        return rowToSectionPosition(i, adapterPosition, pos);
+                    adapterPosition -= sectionSpan;
+                }
+            }
+        }
+        pos[0] = RecyclerView.NO_POSITION; pos[1] = RecyclerView.NO_POSITION;
+        return pos;
+    }
+
+    /**
+     * Converts {@code row}, which is relative to the first row of {@code section}, to section position
+     */
+    private int[] rowToSectionPosition(int section, int row, int[] pos) {
+        pos[0] = section;
+        if (hasHeader(section)) {
+            if (row == 0) {
+                pos[1] = POSITION_HEADER;
+                return pos;
             }
-            adapterPosition -= sectionItemCount;
+            row--;
         }
-        return new int[] { RecyclerView.NO_POSITION, RecyclerView.NO_POSITION };
+        // Rows after the items can only be the footer
+        pos[1] = row < getItemCount(section) ? row : POSITION_FOOTER;
+        return pos;
     }
 
     /**
      * Changes position of item from absolute to relative. The passed pair is updated with new value.
+     * Prefer {@link #adapterToSectionPosition(int, int[])} which does not box the values.
      * @param adapterPosition The absolute position of item
      * @return An array of {@code int} where first value is section to which the item belongs
      * and second value is the relative position inside this section
      */
     protected Pair<Integer, Integer> adapterToSectionPosition(int adapterPosition, Pair<Integer, Integer> pos) {
-        int sectionItemCount;
-        for (int i = 0, sectionCount = getSectionCount(); i < sectionCount; i++) {
-            sectionItemCount = getItemCount(i);
-            if (adapterPosition < sectionItemCount) {
-                pos.first = i; pos.second = adapterPosition;
-                return pos;
-            }
-            adapterPosition -= sectionItemCount;
-        }
-        pos.first = RecyclerView.NO_POSITION; pos.second = RecyclerView.NO_POSITION;
+        adapterToSectionPosition(adapterPosition, mTmpPosition);
+        pos.first = mTmpPosition[0]; pos.second = mTmpPosition[1];
         return pos;
     }
 
@@ -182,7 +1220,19 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param sectionPosition The relative position of item in section
      */
     public void notifyItemChanged(int section, int sectionPosition) {
-        notifyItemChanged(sectionToAdapterPosition(section, sectionPosition));
+        notifyItemRangeChanged(section, sectionPosition, 1, null);
+    }
+
+    /**
+     * Notifies that item at relative position {@code sectionPosition} in section {@code section}
+     * has changed by calling {@link #notifyItemChanged(int, Object)}. The payload is passed to
+     * {@link ViewHolder#bind(int, int, int, List)} so that only the changed part is updated
+     * @param section The section number of item
+     * @param sectionPosition The relative position of item in section
+     * @param payload Optional parameter, use null to identify a full update
+     */
+    public void notifyItemChanged(int section, int sectionPosition, Object payload) {
+        notifyItemRangeChanged(section, sectionPosition, 1, payload);
     }
 
     /**
@@ -194,7 +1244,32 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param itemCount number of items that changed
      */
     public void notifyItemRangeChanged(int section, int sectionPositionStart, int itemCount) {
-        notifyItemRangeChanged(sectionToAdapterPosition(section, sectionPositionStart), itemCount);
+        notifyItemRangeChanged(section, sectionPositionStart, itemCount, null);
+    }
+
+    /**
+     * Notifies that {@code itemCount} number of items starting at relative position
+     * {@code sectionPositionStart} in section {@code section} have changed by calling
+     * {@link #notifyItemRangeChanged(int, int, Object)}. The payload is passed to
+     * {@link ViewHolder#bind(int, int, int, List)} so that only the changed part is updated.
+     * Within a batch, changes are merged only if their payloads are equal.
+     * @param section The section number of item
+     * @param sectionPositionStart The starting relative position of item in section
+     * @param itemCount number of items that changed
+     * @param payload Optional parameter, use null to identify a full update
+     */
+    public void notifyItemRangeChanged(int section, int sectionPositionStart, int itemCount, Object payload) {
+        if (itemCount <= 0)
+            return;
+        for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+            mSectionObservers.get(i).onItemRangeChanged(section, sectionPositionStart, itemCount, payload);
+        if (mCollapsedSections.get(section))
+            return;
+        int positionStart = sectionToAdapterPosition(section, sectionPositionStart);
+        if (mBatchDepth > 0)
+            mBatch.change(positionStart, itemCount, payload);
+        else
+            notifyItemRangeChanged(positionStart, itemCount, payload);
     }
 
     /**
@@ -204,7 +1279,7 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param sectionPosition The relative position of item in section
      */
     public void notifyItemInserted(int section, int sectionPosition) {
-        notifyItemInserted(sectionToAdapterPosition(section, sectionPosition));
+        notifyItemRangeInserted(section, sectionPosition, 1);
     }
 
     /**
@@ -215,9 +1290,20 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param toRelativePosition The final relative position of item
      */
     public void notifyItemMoved(int section, int fromRelativePosition, int toRelativePosition) {
+        for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+            mSectionObservers.get(i).onItemMoved(section, fromRelativePosition, section, toRelativePosition);
+        if (mCollapsedSections.get(section))
+            return;
         int absoluteFromPosition = sectionToAdapterPosition(section, fromRelativePosition);
-        int absoluteToPosition = sectionToAdapterPosition(section, toRelativePosition);
+        int absoluteToPosition = absoluteFromPosition + toRelativePosition - fromRelativePosition;
+        if (mBatchDepth > 0) {
+            mBatch.move(absoluteFromPosition, absoluteToPosition);
+            return;
+        }
+        // Item count of the section is unchanged
+        mKeepSectionIndex = true;
         notifyItemMoved(absoluteFromPosition, absoluteToPosition);
+        mKeepSectionIndex = false;
     }
 
     /**
@@ -229,9 +1315,39 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param toRelativePosition The final relative position of item
      */
     public void notifyItemMoved(int fromSection, int fromRelativePosition, int toSection, int toRelativePosition) {
-        int absoluteFromPosition = sectionToAdapterPosition(fromSection, fromRelativePosition);
-        int absoluteToPosition = sectionToAdapterPosition(toSection, toRelativePosition);
+        for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+            mSectionObservers.get(i).onItemMoved(fromSection, fromRelativePosition, toSection, toRelativePosition);
+        if (mCollapsedSections.get(fromSection) || mCollapsedSections.get(toSection)) {
+            // Item is hidden on at least one side of the move
+            if (!mCollapsedSections.get(toSection))
+                dispatchRangeInserted(toSection, (hasHeader(toSection) ? 1 : 0) + toRelativePosition, 1);
+            else if (!mCollapsedSections.get(fromSection))
+                dispatchRangeRemoved(fromSection, (hasHeader(fromSection) ? 1 : 0) + fromRelativePosition, 1);
+            return;
+        }
+        if (mBatchDepth > 0) {
+            int absoluteFromPosition = sectionToAdapterPosition(fromSection, fromRelativePosition);
+            mSectionIndex.update(fromSection, -1);
+            mSectionIndex.update(toSection, 1);
+            mBatch.move(absoluteFromPosition, sectionToAdapterPosition(toSection, toRelativePosition));
+            return;
+        }
+        // Only the two sections change size, so the index is patched instead of rebuilt
+        boolean patch = mSectionIndex.isValid();
+        int absoluteFromPosition = getDispatchSectionStart(fromSection, patch)
+                + (hasHeader(fromSection) ? 1 : 0) + fromRelativePosition;
+        if (patch) {
+            mSectionIndex.update(fromSection, -1);
+            mSectionIndex.update(toSection, 1);
+        } else if (toSection < fromSection) {
+            // Offsets were computed from current counts, in which toSection already grew
+            absoluteFromPosition--;
+        }
+        int absoluteToPosition = getDispatchSectionStart(toSection, patch)
+                + (hasHeader(toSection) ? 1 : 0) + toRelativePosition;
+        mKeepSectionIndex = true;
         notifyItemMoved(absoluteFromPosition, absoluteToPosition);
+        mKeepSectionIndex = false;
     }
 
     /**
@@ -243,7 +1359,11 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param itemCount number of items that changed
      */
     public void notifyItemRangeInserted(int section, int sectionPositionStart, int itemCount) {
-        notifyItemRangeInserted(sectionToAdapterPosition(section, sectionPositionStart), itemCount);
+        for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+            mSectionObservers.get(i).onItemRangeInserted(section, sectionPositionStart, itemCount);
+        if (mCollapsedSections.get(section))
+            return;
+        dispatchRangeInserted(section, (hasHeader(section) ? 1 : 0) + sectionPositionStart, itemCount);
     }
 
     /**
@@ -253,7 +1373,7 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param sectionPosition The relative position of item in section
      */
     public void notifyItemRemoved(int section, int sectionPosition) {
-        notifyItemRemoved(sectionToAdapterPosition(section, sectionPosition));
+        notifyItemRangeRemoved(section, sectionPosition, 1);
     }
 
     /**
@@ -265,7 +1385,171 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      * @param itemCount number of items that changed
      */
     public void notifyItemRangeRemoved(int section, int sectionPositionStart, int itemCount) {
-        notifyItemRangeRemoved(sectionToAdapterPosition(section, sectionPositionStart), itemCount);
+        for (int i = mSectionObservers.size() - 1; i >= 0; i--)
+            mSectionObservers.get(i).onItemRangeRemoved(section, sectionPositionStart, itemCount);
+        if (mCollapsedSections.get(section))
+            return;
+        dispatchRangeRemoved(section, (hasHeader(section) ? 1 : 0) + sectionPositionStart, itemCount);
+    }
+
+    /**
+     * Start of {@code section} for a section-aware notification. If {@code patch} is set it is read
+     * from the index, which does not contain the notified change yet, otherwise it is computed
+     * from current data, which does. Mixing both would resolve positions against different counts
+     */
+    private int getDispatchSectionStart(int section, boolean patch) {
+        return patch ? mSectionIndex.getSectionStart(section) : getSectionStart(section);
+    }
+
+    /**
+     * Notifies insertion of {@code itemCount} rows at {@code row} relative to first row of
+     * {@code section}, updating section index in place if it is valid
+     */
+    private void dispatchRangeInserted(int section, int row, int itemCount) {
+        if (itemCount <= 0)
+            return;
+        boolean patch = mSectionIndex.isValid();
+        int positionStart = getDispatchSectionStart(section, patch) + row;
+        // Otherwise the lookup built it from sections which may not include this change yet
+        if (patch)
+            mSectionIndex.update(section, itemCount);
+        else
+            mSectionIndex.invalidate();
+        if (mBatchDepth > 0) {
+            mBatch.insert(positionStart, itemCount);
+            return;
+        }
+        mKeepSectionIndex = patch;
+        notifyItemRangeInserted(positionStart, itemCount);
+        mKeepSectionIndex = false;
+    }
+
+    /**
+     * Notifies removal of {@code itemCount} rows at {@code row} relative to first row of
+     * {@code section}, updating section index in place if it is valid
+     */
+    private void dispatchRangeRemoved(int section, int row, int itemCount) {
+        if (itemCount <= 0)
+            return;
+        boolean patch = mSectionIndex.isValid();
+        int positionStart = getDispatchSectionStart(section, patch) + row;
+        // Otherwise the lookup built it from sections which may not include this change yet
+        if (patch)
+            mSectionIndex.update(section, -itemCount);
+        else
+            mSectionIndex.invalidate();
+        if (mBatchDepth > 0) {
+            mBatch.remove(positionStart, itemCount);
+            return;
+        }
+        mKeepSectionIndex = patch;
+        notifyItemRangeRemoved(positionStart, itemCount);
+        mKeepSectionIndex = false;
+    }
+
+    /**
+     * State of sections saved by {@link #onSaveInstanceState()}, stored as primitive arrays
+     */
+    static class SavedState implements Parcelable {
+
+        long mDataVersion;
+        // Rows of every section, only saved with a data version
+        int[] mSectionSpans;
+        int[] mCollapsedSections;
+        int mAnchorSection = RecyclerView.NO_POSITION;
+        int mAnchorSectionPosition;
+        int mAnchorOffset;
+
+        SavedState() {
+        }
+
+        SavedState(Parcel in) {
+            mDataVersion = in.readLong();
+            mSectionSpans = in.createIntArray();
+            mCollapsedSections = in.createIntArray();
+            mAnchorSection = in.readInt();
+            mAnchorSectionPosition = in.readInt();
+            mAnchorOffset = in.readInt();
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeLong(mDataVersion);
+            dest.writeIntArray(mSectionSpans);
+            dest.writeIntArray(mCollapsedSections);
+            dest.writeInt(mAnchorSection);
+            dest.writeInt(mAnchorSectionPosition);
+            dest.writeInt(mAnchorOffset);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+
+    }
+
+    /**
+     * Observer of changes notified through section-aware notify methods, registered with
+     * {@link #registerSectionDataObserver(SectionDataObserver)}. Positions are section positions.
+     * Changes to items of collapsed sections are observed as well.
+     */
+    public static abstract class SectionDataObserver {
+
+        /**
+         * Called on {@link #notifyDataSetChanged()} while the adapter is attached to a
+         * RecyclerView, after which any section may have changed
+         */
+        public void onChanged() {
+
+        }
+
+        /**
+         * Called when {@code sectionCount} sections are inserted at {@code sectionStart}, e.g. by
+         * {@link SectionedDiffer}. Sections from {@code sectionStart} on move forward. By default
+         * it calls {@link #onChanged()}.
+         */
+        public void onSectionRangeInserted(int sectionStart, int sectionCount) {
+            onChanged();
+        }
+
+        /**
+         * Called when {@code sectionCount} sections from {@code sectionStart} are removed, e.g. by
+         * {@link SectionedDiffer}. Sections after them move back. By default it calls
+         * {@link #onChanged()}.
+         */
+        public void onSectionRangeRemoved(int sectionStart, int sectionCount) {
+            onChanged();
+        }
+
+        public void onItemRangeChanged(int section, int sectionPositionStart, int itemCount, Object payload) {
+
+        }
+
+        public void onItemRangeInserted(int section, int sectionPositionStart, int itemCount) {
+
+        }
+
+        public void onItemRangeRemoved(int section, int sectionPositionStart, int itemCount) {
+
+        }
+
+        public void onItemMoved(int fromSection, int fromPosition, int toSection, int toPosition) {
+
+        }
+
     }
 
     /**
@@ -275,7 +1559,12 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
      */
     public static abstract class ViewHolder extends RecyclerView.ViewHolder {
 
-        private SectionedRecyclerViewAdapter mAdapter;
+        private SectionedRecyclerViewAdapter<?> mAdapter;
+        private final int[] mPosition = { RecyclerView.NO_POSITION, RecyclerView.NO_POSITION };
+        private int mBoundAdapterPosition = RecyclerView.NO_POSITION;
+        private int mBoundGeneration;
+        // Bound outside of the RecyclerView, the position is never mapped again
+        private boolean mDetached;
 
         public ViewHolder(View itemView) {
             super(itemView);
@@ -284,9 +1573,30 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
         /**
          * Configure the view holder with instance of parent {@link SectionedRecyclerViewAdapter}
          * @param adapter Parent {@link SectionedRecyclerViewAdapter}
+         * @return Whether the view holder is bound for the first time
          */
-        void configure(SectionedRecyclerViewAdapter adapter) {
+        boolean configure(SectionedRecyclerViewAdapter<?> adapter) {
+            boolean first = mAdapter == null;
             mAdapter = adapter;
+            return first;
+        }
+
+        /**
+         * Records section and section position of this view holder when it is bound so that
+         * {@link #getSectionNumber()} and {@link #getSectionPosition()} need not map it again
+         */
+        void setSectionPosition(int section, int sectionPosition, int adapterPosition, int generation) {
+            mPosition[0] = section;
+            mPosition[1] = sectionPosition;
+            mBoundAdapterPosition = adapterPosition;
+            mBoundGeneration = generation;
+            mDetached = false;
+        }
+
+        void setDetachedSectionPosition(int section, int sectionPosition) {
+            mPosition[0] = section;
+            mPosition[1] = sectionPosition;
+            mDetached = true;
         }
 
         /**
@@ -300,26 +1610,85 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedRecyclerV
 
         }
 
+        /**
+         * Called when the item is rebound with payloads of partial changes. Override this to
+         * update only the changed fields. By default it calls
+         * {@link #bind(int, int, int) bind} to bind the item in full
+         * @param section section count of the view holder
+         * @param sectionPosition position in the section
+         * @param adapterPosition absolute position in the adapter
+         * @param payloads Non-empty list of payloads passed to notify methods
+         */
+        public void bind(int section, int sectionPosition, int adapterPosition, List<Object> payloads) {
+            bind(section, sectionPosition, adapterPosition);
+        }
+
+        /**
+         * Called when header of a section is bound. Override this in view holders created for
+         * {@link #VIEW_TYPE_HEADER}
+         * @param section section of the header
+         * @param adapterPosition absolute position in the adapter
+         */
+        public void bindHeader(int section, int adapterPosition) {
+
+        }
+
+        /**
+         * Called when footer of a section is bound. Override this in view holders created for
+         * {@link #VIEW_TYPE_FOOTER}
+         * @param section section of the footer
+         * @param adapterPosition absolute position in the adapter
+         */
+        public void bindFooter(int section, int adapterPosition) {
+
+        }
+
+        /**
+         * Called when this view holder is recycled. Use this to release resources held by the
+         * bound views or to save state of nested views
+         */
+        public void onRecycled() {
+
+        }
+
         /**
          * @return position of section of this view holder
          */
         public int getSectionNumber() {
             if (mAdapter != null)
-                return mAdapter.adapterToSectionPosition(getAdapterPosition())[0];
+                return updateSectionPosition()[0];
             else
                 return RecyclerView.NO_POSITION;
         }
 
         /**
-         * @return relative position of this view holder in its section
+         * @return relative position of this view holder in its section, {@link #POSITION_HEADER}
+         * for header and {@link #POSITION_FOOTER} for footer
          */
         public int getSectionPosition() {
             if (mAdapter != null)
-                return mAdapter.adapterToSectionPosition(getAdapterPosition())[1];
+                return updateSectionPosition()[1];
             else
                 return RecyclerView.NO_POSITION;
         }
 
+        /**
+         * Maps adapter position again only if it or sections of the adapter changed since bind
+         * @return section and section position of this view holder
+         */
+        private int[] updateSectionPosition() {
+            if (mDetached)
+                return mPosition;
+            int adapterPosition = getAdapterPosition();
+            int generation = mAdapter.getGeneration();
+            if (adapterPosition != mBoundAdapterPosition || generation != mBoundGeneration) {
+                mAdapter.adapterToSectionPosition(adapterPosition, mPosition);
+                mBoundAdapterPosition = adapterPosition;
+                mBoundGeneration = generation;
+            }
+            return mPosition;
+        }
+
         /**
          * Use this to get position of data based on adapter position or section position in case of
          * a complex data source
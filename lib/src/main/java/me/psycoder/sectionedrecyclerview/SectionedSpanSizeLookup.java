@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * {@link android.support.v7.widget.GridLayoutManager.SpanSizeLookup} for a
+ * {@link SectionedRecyclerViewAdapter}. Headers and footers take the full span, items of a
+ * section all take {@link #getItemSpanSize(int)} spans.
+ * <p>
+ * Since span sizes are uniform within a section, span index and span group index of a row are
+ * computed in closed form from the span group and span at which its section starts. These are
+ * cached for all sections and rebuilt in O(sections) after sections change, so a lookup only
+ * maps the position to its section, which is O(log sections) with the
+ * {@link SectionedRecyclerViewAdapter#setSectionIndexEnabled(boolean) section index} enabled.
+ * <pre>
+ * GridLayoutManager layoutManager = new GridLayoutManager(context, 4);
+ * layoutManager.setSpanSizeLookup(new SectionedSpanSizeLookup(adapter, layoutManager));
+ * </pre>
+ */
+@SuppressWarnings("unused")
+public class SectionedSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+
+    private final SectionedRecyclerViewAdapter<?> mAdapter;
+    private final GridLayoutManager mLayoutManager;
+    private final int[] mPosition = new int[2];
+    // Span group index and spans used in it where each section starts
+    private int[] mSectionRows = new int[0];
+    private int[] mSectionUsedSpans = new int[0];
+    private int mSpanCount;
+    private int mGeneration;
+    private boolean mValid;
+    // Span group index and spans used in it after the last placed row
+    private int mRow;
+    private int mUsedSpans;
+    // Span index of the last placed row
+    private int mSpan;
+
+    /**
+     * @param adapter Adapter of the RecyclerView
+     * @param layoutManager Layout manager this lookup is set on, read for its span count
+     */
+    public SectionedSpanSizeLookup(SectionedRecyclerViewAdapter<?> adapter, GridLayoutManager layoutManager) {
+        mAdapter = adapter;
+        mLayoutManager = layoutManager;
+    }
+
+    /**
+     * Number of spans taken by each item of {@code section}. By default it returns 1.
+     * Call {@link #invalidateSpanIndexCache()} if this changes for a section without any notify
+     * call on the adapter.
+     * @param section The section
+     * @return Span size of items of the section
+     */
+    public int getItemSpanSize(int section) {
+        return 1;
+    }
+
+    @Override
+    public int getSpanSize(int position) {
+        int spanCount = mLayoutManager.getSpanCount();
+        int[] pos = mAdapter.adapterToSectionPosition(position, mPosition);
+        if (pos[1] < 0)
+            return spanCount;
+        return getItemSpanSize(pos[0], spanCount);
+    }
+
+    @Override
+    public int getSpanIndex(int position, int spanCount) {
+        locate(position, spanCount);
+        return mSpan;
+    }
+
+    @Override
+    public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+        locate(adapterPosition, spanCount);
+        return mRow;
+    }
+
+    @Override
+    public void invalidateSpanIndexCache() {
+        super.invalidateSpanIndexCache();
+        mValid = false;
+    }
+
+    private int getItemSpanSize(int section, int spanCount) {
+        return Math.max(1, Math.min(getItemSpanSize(section), spanCount));
+    }
+
+    /**
+     * Sets {@link #mRow} and {@link #mSpan} to span group index and span index of {@code position}
+     */
+    private void locate(int position, int spanCount) {
+        if (!mValid || spanCount != mSpanCount || mGeneration != mAdapter.getGeneration())
+            build(spanCount);
+        int[] pos = mAdapter.adapterToSectionPosition(position, mPosition);
+        int section = pos[0], sectionPosition = pos[1];
+        if (section == RecyclerView.NO_POSITION) {
+            mRow = 0;
+            mSpan = 0;
+            return;
+        }
+        mRow = mSectionRows[section];
+        mUsedSpans = mSectionUsedSpans[section];
+        if (sectionPosition == SectionedRecyclerViewAdapter.POSITION_HEADER) {
+            place(spanCount, spanCount);
+            return;
+        }
+        if (mAdapter.hasHeader(section))
+            place(spanCount, spanCount);
+        if (sectionPosition == SectionedRecyclerViewAdapter.POSITION_FOOTER) {
+            placeItems(mAdapter.getItemCount(section), getItemSpanSize(section, spanCount), spanCount);
+            place(spanCount, spanCount);
+        } else {
+            placeItems(sectionPosition + 1, getItemSpanSize(section, spanCount), spanCount);
+        }
+    }
+
+    /**
+     * Records span group and used spans at the start of every section
+     */
+    private void build(int spanCount) {
+        int sectionCount = mAdapter.getSectionCount();
+        if (mSectionRows.length < sectionCount) {
+            mSectionRows = new int[sectionCount];
+            mSectionUsedSpans = new int[sectionCount];
+        }
+        mRow = 0;
+        mUsedSpans = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            mSectionRows[i] = mRow;
+            mSectionUsedSpans[i] = mUsedSpans;
+            if (mAdapter.hasHeader(i))
+                place(spanCount, spanCount);
+            if (!mAdapter.isSectionExpanded(i))
+                continue;
+            placeItems(mAdapter.getItemCount(i), getItemSpanSize(i, spanCount), spanCount);
+            if (mAdapter.hasFooter(i))
+                place(spanCount, spanCount);
+        }
+        mSpanCount = spanCount;
+        mGeneration = mAdapter.getGeneration();
+        mValid = true;
+    }
+
+    /**
+     * Places a row of {@code size} spans the way GridLayoutManager does: in the current span group
+     * if it fits, otherwise at the start of the next one
+     */
+    private void place(int size, int spanCount) {
+        if (mUsedSpans + size > spanCount) {
+            mRow++;
+            mUsedSpans = 0;
+        }
+        mSpan = mUsedSpans;
+        mUsedSpans += size;
+    }
+
+    /**
+     * Places {@code count} rows of {@code size} spans in closed form, {@link #mSpan} is left at the
+     * span index of the last one
+     */
+    private void placeItems(int count, int size, int spanCount) {
+        if (count <= 0)
+            return;
+        // Rows fitting in the rest of the current span group
+        int fitting = (spanCount - mUsedSpans) / size;
+        if (count <= fitting) {
+            mSpan = mUsedSpans + (count - 1) * size;
+        } else {
+            int perGroup = spanCount / size;
+            int index = count - fitting - 1;
+            mRow += 1 + index / perGroup;
+            mSpan = (index % perGroup) * size;
+        }
+        mUsedSpans = mSpan + size;
+    }
+
+}
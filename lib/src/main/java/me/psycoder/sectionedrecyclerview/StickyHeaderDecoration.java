@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.graphics.Canvas;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * {@link android.support.v7.widget.RecyclerView.ItemDecoration} which pins the header of the
+ * section at the top of a vertical list and pushes it out when the header of the next section
+ * reaches it. Only sections for which {@link SectionedRecyclerViewAdapter#hasHeader(int)} is true
+ * get a pinned header.
+ * One view holder is created per header view type and is rebound only when the pinned section
+ * changes, nothing is allocated while drawing. Pinned headers are bound through
+ * {@link SectionedRecyclerViewAdapter#onBindHeader(SectionedRecyclerViewAdapter.ViewHolder, int, int)}
+ * and are not counted in {@link SectionMetrics}. Enable
+ * {@link SectionedRecyclerViewAdapter#setSectionIndexEnabled(boolean) section index} so that
+ * the current and next header are found in O(log sections).
+ */
+@SuppressWarnings({"rawtypes", "unchecked", "unused"})
+public class StickyHeaderDecoration extends RecyclerView.ItemDecoration {
+
+    private final SectionedRecyclerViewAdapter mAdapter;
+    // Header view holders keyed by view type
+    private final SparseArray<SectionedRecyclerViewAdapter.ViewHolder> mHeaders = new SparseArray<SectionedRecyclerViewAdapter.ViewHolder>();
+    private final int[] mPosition = new int[2];
+    private SectionedRecyclerViewAdapter.ViewHolder mHeader;
+    private int mHeaderSection = RecyclerView.NO_POSITION;
+    private int mHeaderGeneration;
+    private int mHeaderWidth;
+
+    /**
+     * @param adapter Adapter of the RecyclerView this decoration is added to
+     */
+    public StickyHeaderDecoration(SectionedRecyclerViewAdapter<?> adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * Drops the cached header views, e.g. after theme or layout of headers changed
+     */
+    public void clearHeaderCache() {
+        mHeaders.clear();
+        mHeader = null;
+        mHeaderSection = RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * @return Section whose header is pinned or {@link RecyclerView#NO_POSITION} if none is
+     * pinned since the last draw
+     */
+    public int getPinnedSection() {
+        return mHeader == null ? RecyclerView.NO_POSITION : mHeaderSection;
+    }
+
+    @Override
+    public void onDrawOver(Canvas c, RecyclerView parent, RecyclerView.State state) {
+        View first = parent.getChildCount() > 0 ? parent.getChildAt(0) : null;
+        int firstPosition = first == null ? RecyclerView.NO_POSITION : parent.getChildAdapterPosition(first);
+        int section = firstPosition == RecyclerView.NO_POSITION ? RecyclerView.NO_POSITION
+                : mAdapter.adapterToSectionPosition(firstPosition, mPosition)[0];
+        if (section == RecyclerView.NO_POSITION || !mAdapter.hasHeader(section)) {
+            mHeader = null;
+            return;
+        }
+        View header = getHeader(parent, section).itemView;
+        int top = parent.getPaddingTop();
+        int height = header.getHeight();
+
+        // Children are laid out in adapter order, so header of next section is found by offset
+        int next = section + 1;
+        if (next < mAdapter.getSectionCount() && mAdapter.hasHeader(next)) {
+            int nextPosition = mAdapter.getSectionStart(next);
+            int index = nextPosition - firstPosition;
+            if (index > 0 && index < parent.getChildCount()) {
+                View child = parent.getChildAt(index);
+                if (parent.getChildAdapterPosition(child) == nextPosition && child.getTop() < top + height)
+                    top = child.getTop() - height;
+            }
+        }
+
+        int saveCount = c.save();
+        c.translate(parent.getPaddingLeft(), top);
+        header.draw(c);
+        c.restoreToCount(saveCount);
+    }
+
+    /**
+     * Returns the view holder of the header of {@code section}, creating, binding and laying it
+     * out only if a different header was shown before
+     */
+    private SectionedRecyclerViewAdapter.ViewHolder getHeader(RecyclerView parent, int section) {
+        int position = mAdapter.getSectionStart(section);
+        int viewType = mAdapter.getItemViewType(position);
+        SectionedRecyclerViewAdapter.ViewHolder holder = mHeaders.get(viewType);
+        if (holder == null) {
+            holder = (SectionedRecyclerViewAdapter.ViewHolder) mAdapter.onCreateViewHolder(parent, viewType);
+            mHeaders.put(viewType, holder);
+        }
+        int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+        int generation = mAdapter.getGeneration();
+        if (holder != mHeader || section != mHeaderSection || generation != mHeaderGeneration) {
+            mAdapter.bindDetachedHeader(holder, section, position);
+            mHeader = holder;
+            mHeaderSection = section;
+            mHeaderGeneration = generation;
+            measure(holder.itemView, parent, width);
+        } else if (width != mHeaderWidth) {
+            measure(holder.itemView, parent, width);
+        }
+        return holder;
+    }
+
+    private void measure(View header, RecyclerView parent, int width) {
+        ViewGroup.LayoutParams params = header.getLayoutParams();
+        int height = params == null ? ViewGroup.LayoutParams.WRAP_CONTENT : params.height;
+        int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+        int heightSpec = ViewGroup.getChildMeasureSpec(
+                View.MeasureSpec.makeMeasureSpec(parent.getHeight(), View.MeasureSpec.UNSPECIFIED), 0, height);
+        header.measure(widthSpec, heightSpec);
+        header.layout(0, 0, header.getMeasuredWidth(), header.getMeasuredHeight());
+        mHeaderWidth = width;
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Merges consecutive adapter notifications which touch adjacent or overlapping positions into a
+ * single range notification and queues them until {@link #flush()} is called. Positions passed to
+ * it are absolute adapter positions at the time of the call, i.e. after all previous calls have
+ * been applied.
+ */
+final class UpdateCoalescer {
+
+    private static final int TYPE_INSERT = 1;
+    private static final int TYPE_REMOVE = 2;
+    private static final int TYPE_CHANGE = 3;
+    private static final int TYPE_MOVE = 4;
+
+    private final RecyclerView.Adapter<?> mAdapter;
+    // Queued notifications as triples of type, position and item count (target position for moves)
+    private int[] mOps = new int[24];
+    // Payload of each queued change, indexed by position of its triple divided by 3
+    private Object[] mPayloads = new Object[8];
+    private int mSize;
+
+    UpdateCoalescer(RecyclerView.Adapter<?> adapter) {
+        mAdapter = adapter;
+    }
+
+    /**
+     * Creates a coalescer which only records notifications, to be dispatched later by
+     * {@link #dispatch(RecyclerView.Adapter)}
+     */
+    UpdateCoalescer() {
+        this(null);
+    }
+
+    void insert(int positionStart, int itemCount) {
+        if (itemCount <= 0)
+            return;
+        if (lastType() == TYPE_INSERT) {
+            int start = mOps[mSize - 2], count = mOps[mSize - 1];
+            if (positionStart >= start && positionStart <= start + count) {
+                mOps[mSize - 1] += itemCount;
+                return;
+            }
+        }
+        add(TYPE_INSERT, positionStart, itemCount);
+    }
+
+    void remove(int positionStart, int itemCount) {
+        if (itemCount <= 0)
+            return;
+        int type = lastType();
+        if (type == TYPE_REMOVE) {
+            int start = mOps[mSize - 2];
+            if (positionStart <= start && positionStart + itemCount >= start) {
+                mOps[mSize - 2] = positionStart;
+                mOps[mSize - 1] += itemCount;
+                return;
+            }
+        } else if (type == TYPE_INSERT) {
+            int start = mOps[mSize - 2], count = mOps[mSize - 1];
+            if (positionStart >= start && positionStart + itemCount <= start + count) {
+                // Items inserted and removed in same batch are never dispatched
+                if (count == itemCount)
+                    mSize -= 3;
+                else
+                    mOps[mSize - 1] -= itemCount;
+                return;
+            }
+        }
+        add(TYPE_REMOVE, positionStart, itemCount);
+    }
+
+    void change(int positionStart, int itemCount, Object payload) {
+        if (itemCount <= 0)
+            return;
+        int type = lastType();
+        if (type == TYPE_CHANGE && equal(payload, mPayloads[mSize / 3 - 1])) {
+            int start = mOps[mSize - 2], count = mOps[mSize - 1];
+            if (positionStart <= start + count && positionStart + itemCount >= start) {
+                int end = Math.max(start + count, positionStart + itemCount);
+                start = Math.min(start, positionStart);
+                mOps[mSize - 2] = start;
+                mOps[mSize - 1] = end - start;
+                return;
+            }
+        } else if (type == TYPE_INSERT) {
+            int start = mOps[mSize - 2], count = mOps[mSize - 1];
+            // Inserted items are bound anyway
+            if (positionStart >= start && positionStart + itemCount <= start + count)
+                return;
+        }
+        add(TYPE_CHANGE, positionStart, itemCount);
+        mPayloads[mSize / 3 - 1] = payload;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    void move(int fromPosition, int toPosition) {
+        if (fromPosition != toPosition)
+            add(TYPE_MOVE, fromPosition, toPosition);
+    }
+
+    /**
+     * @return Whether there is any queued notification
+     */
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * @return Number of queued notifications, after merging
+     */
+    int getOpCount() {
+        return mSize / 3;
+    }
+
+    /**
+     * Dispatches all queued notifications in order
+     */
+    void flush() {
+        dispatch(mAdapter);
+        clear();
+    }
+
+    /**
+     * Drops all queued notifications without dispatching them
+     */
+    void clear() {
+        for (int i = 0; i < mSize / 3; i++)
+            mPayloads[i] = null;
+        mSize = 0;
+    }
+
+    /**
+     * Dispatches all queued notifications in order to {@code adapter}, keeping them queued
+     */
+    void dispatch(RecyclerView.Adapter<?> adapter) {
+        for (int i = 0; i < mSize; i += 3) {
+            int position = mOps[i + 1], count = mOps[i + 2];
+            switch (mOps[i]) {
+                case TYPE_INSERT: adapter.notifyItemRangeInserted(position, count); break;
+                case TYPE_REMOVE: adapter.notifyItemRangeRemoved(position, count); break;
+                case TYPE_CHANGE: adapter.notifyItemRangeChanged(position, count, mPayloads[i / 3]); break;
+                case TYPE_MOVE: adapter.notifyItemMoved(position, count); break;
+            }
+        }
+    }
+
+    private int lastType() {
+        return mSize == 0 ? 0 : mOps[mSize - 3];
+    }
+
+    private void add(int type, int position, int count) {
+        if (mSize + 3 > mOps.length) {
+            int[] ops = new int[mOps.length * 2];
+            System.arraycopy(mOps, 0, ops, 0, mSize);
+            mOps = ops;
+            Object[] payloads = new Object[ops.length / 3];
+            System.arraycopy(mPayloads, 0, payloads, 0, mSize / 3);
+            mPayloads = payloads;
+        }
+        mOps[mSize++] = type;
+        mOps[mSize++] = position;
+        mOps[mSize++] = count;
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 Sourabh Verma
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package me.psycoder.sectionedrecyclerview;
+
+/**
+ * Cached view types of items declared per section by
+ * {@link SectionedRecyclerViewAdapter#getItemViewTypes(int)}, used by
+ * {@link SectionedRecyclerViewAdapter} to answer view type lookups without calling
+ * {@link SectionedRecyclerViewAdapter#getItemViewType(int, int, int)}. Patterns of all sections
+ * are stored back to back in a single array, {@code mOffsets[s]} is the start of pattern of
+ * section {@code s}.
+ */
+final class ViewTypeTable {
+
+    private int[] mOffsets = new int[1];
+    private int[] mTypes = new int[0];
+    private int mSectionCount;
+    private boolean mValid;
+
+    boolean isValid() {
+        return mValid;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    /**
+     * Rebuilds the table by querying view types of every section of the adapter
+     * @param adapter Adapter whose view types are cached
+     */
+    void build(SectionedRecyclerViewAdapter<?> adapter) {
+        int sectionCount = adapter.getSectionCount();
+        if (mOffsets.length < sectionCount + 1)
+            mOffsets = new int[sectionCount + 1];
+        int size = 0;
+        for (int i = 0; i < sectionCount; i++) {
+            mOffsets[i] = size;
+            int[] types = adapter.getItemViewTypes(i);
+            if (types == null)
+                continue;
+            if (size + types.length > mTypes.length) {
+                int[] grown = new int[Math.max(mTypes.length * 2, size + types.length)];
+                System.arraycopy(mTypes, 0, grown, 0, size);
+                mTypes = grown;
+            }
+            System.arraycopy(types, 0, mTypes, size, types.length);
+            size += types.length;
+        }
+        mOffsets[sectionCount] = size;
+        mSectionCount = sectionCount;
+        mValid = true;
+    }
+
+    /**
+     * @return Whether view types of items of {@code section} are cached
+     */
+    boolean hasViewTypes(int section) {
+        return section < mSectionCount && mOffsets[section + 1] > mOffsets[section];
+    }
+
+    /**
+     * @param section Section for which {@link #hasViewTypes(int)} is true
+     * @param sectionPosition Position of item in the section
+     * @return View type of the item
+     */
+    int getItemViewType(int section, int sectionPosition) {
+        int start = mOffsets[section];
+        return mTypes[start + sectionPosition % (mOffsets[section + 1] - start)];
+    }
+
+}
@@ -5,6 +5,8 @@ import android.os.Bundle;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 
+import me.psycoder.sectionedrecyclerview.StickyHeaderDecoration;
+
 public class MainActivity extends AppCompatActivity {
 
     @Override
@@ -14,7 +16,11 @@ public class MainActivity extends AppCompatActivity {
         RecyclerView recyclerView = (RecyclerView) findViewById(R.id.recycler_view);
         if (recyclerView != null) {
             recyclerView.setLayoutManager(new LinearLayoutManager(getApplicationContext()));
-            recyclerView.setAdapter(new MainAdapter(getApplicationContext()));
+            MainAdapter adapter = new MainAdapter(getApplicationContext());
+            adapter.setSectionIndexEnabled(true);
+            adapter.setViewTypeTableEnabled(true);
+            recyclerView.setAdapter(adapter);
+            recyclerView.addItemDecoration(new StickyHeaderDecoration(adapter));
         }
 
     }
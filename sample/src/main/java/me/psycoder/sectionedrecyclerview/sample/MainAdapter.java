@@ -26,10 +26,13 @@ import me.psycoder.sectionedrecyclerview.SectionedRecyclerViewAdapter;
 
 public class MainAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerViewAdapter.ViewHolder> {
 
+    private static final int[] ITEM_VIEW_TYPES = { R.layout.li_color };
+
     private Context mContext;
 
     public MainAdapter(Context context) {
         mContext = context;
+        setHasStableIds(true);
     }
 
     @Override
@@ -39,18 +42,28 @@ public class MainAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerV
 
     @Override
     public int getItemCount(int section) {
-        return 2;
+        return 1;
+    }
+
+    @Override
+    public boolean hasHeader(int section) {
+        return true;
     }
 
     @Override
-    public int getItemViewType(int section, int sectionPosition, int adapterPosition) {
-        return sectionPosition % 2 == 0 ? R.layout.li_quote : R.layout.li_color;
+    public int[] getItemViewTypes(int section) {
+        return ITEM_VIEW_TYPES;
+    }
+
+    @Override
+    public long getItemId(int section, int sectionPosition) {
+        return packItemId(getSectionId(section), sectionPosition);
     }
 
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         switch (viewType) {
-            case R.layout.li_quote: return new QuoteHolder(LayoutInflater.from(parent.getContext()).inflate(viewType, parent, false));
+            case VIEW_TYPE_HEADER: return new QuoteHolder(LayoutInflater.from(parent.getContext()).inflate(R.layout.li_quote, parent, false));
             case R.layout.li_color: return new ColorHolder(LayoutInflater.from(parent.getContext()).inflate(viewType, parent, false));
             default: return null;
         }
@@ -66,7 +79,7 @@ public class MainAdapter extends SectionedRecyclerViewAdapter<SectionedRecyclerV
         }
 
         @Override
-        public void bind(int section, int sectionPosition, int adapterPosition) {
+        public void bindHeader(int section, int adapterPosition) {
             mQuote.setText(Data.Quotes[section]);
         }
 